@@ -0,0 +1,115 @@
+package boomerang.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.accesspath.WrappedSootField;
+import soot.G;
+import soot.Local;
+import soot.SootClass;
+
+/**
+ * Derivations of {@link AccessGraph}s and their field graphs on synthetic field chains. A chain of
+ * the given depth uses as many distinct fields, the recursive graph of the same depth repeats two
+ * fields and therefore contains loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessGraphBenchmark {
+
+  @Param({"1", "4", "16"})
+  public int depth;
+
+  private Local base;
+  private WrappedSootField[] chain;
+  private WrappedSootField[] recursiveChain;
+  private AccessGraph plain;
+  private AccessGraph deep;
+  private AccessGraph deepCopy;
+  private AccessGraph recursive;
+
+  @Setup
+  public void setUp() {
+    G.v().reset();
+    SootClass node = SootFixture.syntheticClass("bench.Node", depth);
+    base = SootFixture.syntheticLocal(node);
+    chain = SootFixture.fieldChain(node, depth);
+    recursiveChain = SootFixture.fieldChain(SootFixture.syntheticClass("bench.Tree", 2), depth);
+    plain = new AccessGraph(base, base.getType());
+    deep = new AccessGraph(base, base.getType(), chain);
+    deepCopy = new AccessGraph(base, base.getType(), chain.clone());
+    recursive = new AccessGraph(base, base.getType(), recursiveChain);
+  }
+
+  @Benchmark
+  public AccessGraph appendFields() {
+    return plain.appendFields(chain);
+  }
+
+  @Benchmark
+  public AccessGraph appendFieldsRecursive() {
+    return plain.appendFields(recursiveChain);
+  }
+
+  @Benchmark
+  public AccessGraph prependField() {
+    return deep.prependField(chain[0]);
+  }
+
+  @Benchmark
+  public Set<AccessGraph> popFirstField() {
+    return deep.popFirstField();
+  }
+
+  @Benchmark
+  public Set<AccessGraph> popLastField() {
+    return deep.popLastField();
+  }
+
+  @Benchmark
+  public Set<AccessGraph> popFirstFieldRecursive() {
+    return recursive.popFirstField();
+  }
+
+  @Benchmark
+  public Set<AccessGraph> popLastFieldRecursive() {
+    return recursive.popLastField();
+  }
+
+  @Benchmark
+  public boolean equalsEqual() {
+    return deep.equals(deepCopy);
+  }
+
+  @Benchmark
+  public boolean equalsDifferent() {
+    return deep.equals(recursive);
+  }
+
+  @Benchmark
+  public int hashCodeDeep() {
+    return deep.hashCode();
+  }
+
+  @Benchmark
+  public int hashCodeRecursive() {
+    return recursive.hashCode();
+  }
+}
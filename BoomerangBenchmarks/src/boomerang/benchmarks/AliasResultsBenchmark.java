@@ -0,0 +1,76 @@
+package boomerang.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.accesspath.WrappedSootField;
+import boomerang.cache.AliasResults;
+import soot.Local;
+import soot.SootClass;
+import soot.jimple.Jimple;
+
+/**
+ * {@link AliasResults#appendFields(java.util.Collection, WrappedSootField[], BoomerangContext)},
+ * which extends the aliases of a base object to the aliases of one of its fields, on a number of
+ * aliases with synthetic field chains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AliasResultsBenchmark {
+
+  @Param({"1", "16", "256"})
+  public int aliasCount;
+
+  @Param({"1", "4"})
+  public int depth;
+
+  private BoomerangContext context;
+  private Set<AccessGraph> aliases;
+  private WrappedSootField[] chain;
+  private AccessGraph suffix;
+
+  @Setup
+  public void setUp() {
+    // The context needs a program, the aliases are synthetic
+    context = SootFixture.load(SootFixture.PROGRAMS[0]).createContext();
+    SootClass node = SootFixture.syntheticClass("bench.Node", depth);
+    chain = SootFixture.fieldChain(node, depth);
+    aliases = new HashSet<>();
+    for (int i = 0; i < aliasCount; i++) {
+      Local l = Jimple.v().newLocal("a" + i, node.getType());
+      aliases.add(i % 2 == 0 ? new AccessGraph(l, l.getType())
+          : new AccessGraph(l, l.getType(), chain[0]));
+    }
+    Local base = SootFixture.syntheticLocal(node);
+    suffix = new AccessGraph(base, base.getType(), chain);
+  }
+
+  @Benchmark
+  public Set<AccessGraph> appendFields() {
+    return AliasResults.appendFields(aliases, chain, context);
+  }
+
+  @Benchmark
+  public Set<AccessGraph> appendGraph() {
+    return AliasResults.appendFields(aliases, suffix, context);
+  }
+}
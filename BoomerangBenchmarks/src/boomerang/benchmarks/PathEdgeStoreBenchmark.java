@@ -0,0 +1,97 @@
+package boomerang.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore;
+import boomerang.bidi.PathEdgeStore.Direction;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.PathEdge;
+import soot.Unit;
+import soot.jimple.infoflow.aliasing.boomerang.PackedPathEdgeStore;
+
+/**
+ * {@link PathEdgeStore#register(IPathEdge, IPathEdge)} and
+ * {@link PathEdgeStore#hasAlreadyProcessed(IPathEdge)}, the operations the solvers perform for
+ * every propagation, on the path edges of a program. Every operation processes all edges of the
+ * program once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathEdgeStoreBenchmark {
+
+  @Param({"example.Program2", "basic.Recursion1", "collections.Map1"})
+  public String program;
+
+  /**
+   * The store of Boomerang or the {@link PackedPathEdgeStore}.
+   */
+  @Param({"plain", "packed"})
+  public String store;
+
+  private BoomerangContext context;
+  private List<IPathEdge<Unit, AccessGraph>> edges;
+  private List<IPathEdge<Unit, AccessGraph>> unknownEdges;
+  private PathEdgeStore filled;
+
+  @Setup
+  public void setUp() {
+    SootFixture fixture = SootFixture.load(program);
+    context = fixture.createContext();
+    edges = fixture.createPathEdges();
+    unknownEdges = new ArrayList<>();
+    for (IPathEdge<Unit, AccessGraph> e : edges)
+      unknownEdges.add(
+          new PathEdge<>(e.getTarget(), e.factAtSource(), e.getStart(), e.factAtTarget()));
+    unknownEdges.removeAll(edges);
+    filled = createStore();
+    for (IPathEdge<Unit, AccessGraph> e : edges)
+      filled.register(e, null);
+  }
+
+  private PathEdgeStore createStore() {
+    if (store.equals("packed"))
+      return new PackedPathEdgeStore(context, Direction.Forward);
+    return new PathEdgeStore(context, Direction.Forward);
+  }
+
+  @Benchmark
+  public PathEdgeStore register() {
+    PathEdgeStore s = createStore();
+    for (IPathEdge<Unit, AccessGraph> e : edges)
+      s.register(e, null);
+    return s;
+  }
+
+  @Benchmark
+  public void hasAlreadyProcessedHit(Blackhole bh) {
+    for (IPathEdge<Unit, AccessGraph> e : edges)
+      bh.consume(filled.hasAlreadyProcessed(e));
+  }
+
+  @Benchmark
+  public void hasAlreadyProcessedMiss(Blackhole bh) {
+    for (IPathEdge<Unit, AccessGraph> e : unknownEdges)
+      bh.consume(filled.hasAlreadyProcessed(e));
+  }
+}
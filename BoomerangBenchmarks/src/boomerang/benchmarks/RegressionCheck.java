@@ -0,0 +1,114 @@
+package boomerang.benchmarks;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and compares their scores with a baseline recorded on the same machine. A
+ * benchmark regressed if its score is worse than the baseline by more than the tolerance, i.e.
+ * higher for the time modes and lower for the throughput mode. Benchmarks without a baseline
+ * score are reported but do not fail the check.
+ *
+ * Usage: {@code RegressionCheck <baseline file> <tolerance> [record] [benchmark regex...]}. With
+ * {@code record} the scores are written to the baseline file instead of being compared. The
+ * process exits with status 1 if a benchmark regressed.
+ */
+public class RegressionCheck {
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: RegressionCheck <baseline file> <tolerance> [record] [benchmark regex...]");
+      System.exit(2);
+    }
+    File baselineFile = new File(args[0]);
+    double tolerance = Double.parseDouble(args[1]);
+    int first = 2;
+    boolean record = args.length > 2 && args[2].equals("record");
+    if (record)
+      first++;
+
+    OptionsBuilder options = new OptionsBuilder();
+    for (int i = first; i < args.length; i++)
+      options.include(args[i]);
+    if (first == args.length)
+      options.include(".*Benchmark.*");
+    Collection<RunResult> results = new Runner(options.build()).run();
+
+    Map<String, Double> scores = new TreeMap<>();
+    Map<String, Boolean> higherIsBetter = new TreeMap<>();
+    for (RunResult result : results) {
+      String key = keyOf(result.getParams());
+      scores.put(key, result.getPrimaryResult().getScore());
+      higherIsBetter.put(key, result.getParams().getMode() == Mode.Throughput);
+    }
+
+    if (record) {
+      Properties baseline = new Properties();
+      for (Map.Entry<String, Double> e : scores.entrySet())
+        baseline.setProperty(e.getKey(), Double.toString(e.getValue()));
+      try (Writer out = new FileWriter(baselineFile)) {
+        baseline.store(out, "Benchmark scores, compared by RegressionCheck");
+      }
+      System.out.println("Recorded " + scores.size() + " scores to " + baselineFile);
+      return;
+    }
+
+    Properties baseline = new Properties();
+    try (Reader in = new FileReader(baselineFile)) {
+      baseline.load(in);
+    }
+    int regressions = 0;
+    for (Map.Entry<String, Double> e : scores.entrySet()) {
+      String old = baseline.getProperty(e.getKey());
+      if (old == null) {
+        System.out.println("NEW        " + e.getKey() + ": " + e.getValue());
+        continue;
+      }
+      double change = (e.getValue() - Double.parseDouble(old)) / Double.parseDouble(old);
+      if (higherIsBetter.get(e.getKey()))
+        change = -change;
+      boolean regressed = change > tolerance;
+      if (regressed)
+        regressions++;
+      System.out.println(String.format("%-10s %s: %s -> %s (%+.1f%%)",
+          regressed ? "REGRESSED" : "OK", e.getKey(), old, e.getValue(), change * 100));
+    }
+    System.out.println(regressions + " of " + scores.size() + " benchmarks regressed by more than "
+        + tolerance * 100 + "%");
+    if (regressions > 0)
+      System.exit(1);
+  }
+
+  /**
+   * @return The name of the benchmark method with its parameters, e.g.
+   *         {@code boomerang.benchmarks.SummariesBenchmark.endSummary[program=..., summaries=...]}.
+   */
+  private static String keyOf(BenchmarkParams params) {
+    StringBuilder key = new StringBuilder(params.getBenchmark());
+    if (!params.getParamsKeys().isEmpty()) {
+      String sep = "[";
+      for (String p : params.getParamsKeys()) {
+        key.append(sep).append(p).append('=').append(params.getParam(p));
+        sep = ", ";
+      }
+      key.append(']');
+    }
+    return key.toString();
+  }
+}
@@ -0,0 +1,156 @@
+package boomerang.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.accesspath.WrappedSootField;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.PathEdge;
+import boomerang.preanalysis.PreparationTransformer;
+import soot.G;
+import soot.Local;
+import soot.PackManager;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Transform;
+import soot.Unit;
+import soot.jimple.Jimple;
+import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.options.Options;
+
+/**
+ * Builds the inputs of the benchmarks: programs loaded into Soot and prepared for Boomerang like
+ * in {@code example.Example}, and synthetic field chains that need no program.
+ *
+ * The programs are the compiled {@code Boomerang/exampleTarget} and PointerBench classes, see the
+ * {@code targets} task of the build. Their directory is read from the system property
+ * {@code boomerang.benchmarks.targets}.
+ */
+public class SootFixture {
+
+  /**
+   * Programs whose main methods the benchmarks may load, from small to large.
+   */
+  public static final String[] PROGRAMS = {"example.Program1", "example.Program2",
+      "example.Program3", "cornerCases.AccessPath1", "basic.Recursion1",
+      "generalJava.Interface1", "collections.Map1"};
+
+  private final InfoflowCFG icfg;
+  private final SootClass mainClass;
+
+  private SootFixture(InfoflowCFG icfg, SootClass mainClass) {
+    this.icfg = icfg;
+    this.mainClass = mainClass;
+  }
+
+  /**
+   * Resets Soot and loads the program with the given main class.
+   */
+  public static SootFixture load(String mainClass) {
+    G.v().reset();
+    Options.v().set_whole_program(true);
+    Options.v().set_output_format(Options.output_format_none);
+    Options.v().setPhaseOption("cg", "trim-clinit:false");
+    Options.v().setPhaseOption("jb", "use-original-names:true");
+    Options.v().setPhaseOption("cg.spark", "on");
+    Options.v().set_soot_classpath(System.getProperty("boomerang.benchmarks.targets",
+        "build/targets"));
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_no_bodies_for_excluded(true);
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_main_class(mainClass);
+
+    Scene.v().addBasicClass(mainClass, SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    SootClass c = Scene.v().forceResolve(mainClass, SootClass.BODIES);
+    c.setApplicationClass();
+    List<SootMethod> entryPoints = new LinkedList<>();
+    entryPoints.add(c.getMethodByName("main"));
+    Scene.v().setEntryPoints(entryPoints);
+    PackManager.v().getPack("wjtp")
+        .add(new Transform("wjtp.preparationTransform", new PreparationTransformer()));
+    PackManager.v().getPack("cg").apply();
+    PackManager.v().getPack("wjtp").apply();
+    return new SootFixture(new InfoflowCFG(), c);
+  }
+
+  public InfoflowCFG getICFG() {
+    return icfg;
+  }
+
+  public BoomerangContext createContext() {
+    BoomerangContext context = new BoomerangContext(icfg, new BackwardsInfoflowCFG(icfg));
+    context.budgetInMilliSeconds = Long.MAX_VALUE / 2;
+    context.startTime = System.currentTimeMillis();
+    return context;
+  }
+
+  /**
+   * @return The methods of the application classes that have a body.
+   */
+  public List<SootMethod> getMethods() {
+    List<SootMethod> res = new ArrayList<>();
+    for (SootClass c : Scene.v().getApplicationClasses())
+      for (SootMethod m : c.getMethods())
+        if (m.hasActiveBody())
+          res.add(m);
+    return res;
+  }
+
+  /**
+   * @return One path edge per statement and reference local of every application method, all
+   *         starting at the first statement of their method.
+   */
+  public List<IPathEdge<Unit, AccessGraph>> createPathEdges() {
+    List<IPathEdge<Unit, AccessGraph>> res = new ArrayList<>();
+    for (SootMethod m : getMethods()) {
+      Unit start = m.getActiveBody().getUnits().getFirst();
+      for (Local l : m.getActiveBody().getLocals()) {
+        if (!(l.getType() instanceof RefType))
+          continue;
+        AccessGraph startFact = new AccessGraph(l, l.getType());
+        for (Unit u : m.getActiveBody().getUnits())
+          res.add(new PathEdge<>(start, startFact, u, startFact));
+      }
+    }
+    return res;
+  }
+
+  public SootClass getMainClass() {
+    return mainClass;
+  }
+
+  /**
+   * Creates a class with the given number of fields that all point to the class itself, the shape
+   * of a recursive data structure such as a linked list or a tree.
+   */
+  public static SootClass syntheticClass(String name, int fieldCount) {
+    SootClass c = new SootClass(name);
+    for (int i = 0; i < fieldCount; i++)
+      c.addField(new SootField("f" + i, c.getType()));
+    Scene.v().addClass(c);
+    return c;
+  }
+
+  /**
+   * @return The fields of the class, wrapped as a field chain.
+   */
+  public static WrappedSootField[] fieldChain(SootClass c, int length) {
+    List<SootField> fields = new ArrayList<>(c.getFields());
+    WrappedSootField[] res = new WrappedSootField[length];
+    for (int i = 0; i < length; i++)
+      res[i] = new WrappedSootField(fields.get(i % fields.size()), c.getType(), null);
+    return res;
+  }
+
+  public static Local syntheticLocal(SootClass c) {
+    return Jimple.v().newLocal("base", c.getType());
+  }
+}
@@ -0,0 +1,101 @@
+package boomerang.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.Summaries;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.ISummaries;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.aliasing.boomerang.ConcurrentSummaries;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+
+/**
+ * {@link ISummaries#endSummary(Object, Pair)}, the lookup at every call, and
+ * {@link ISummaries#addEndSummary(Object, IPathEdge)} on end summaries made from the path edges
+ * of a program. Every operation processes all summaries of the program once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummariesBenchmark {
+
+  @Param({"example.Program2", "basic.Recursion1", "collections.Map1"})
+  public String program;
+
+  /**
+   * The summaries of Boomerang or the {@link ConcurrentSummaries} shared across queries.
+   */
+  @Param({"boomerang", "concurrent"})
+  public String summaries;
+
+  private SootFixture fixture;
+  private List<SootMethod> methods;
+  private List<IPathEdge<Unit, AccessGraph>> edges;
+  private List<Pair<Unit, AccessGraph>> unknownStartNodes;
+  private ISummaries<Unit, SootMethod, AccessGraph> filled;
+
+  @Setup
+  public void setUp() {
+    fixture = SootFixture.load(program);
+    InfoflowCFG icfg = fixture.getICFG();
+    edges = fixture.createPathEdges();
+    methods = new ArrayList<>();
+    unknownStartNodes = new ArrayList<>();
+    for (IPathEdge<Unit, AccessGraph> e : edges) {
+      methods.add(icfg.getMethodOf(e.getTarget()));
+      unknownStartNodes.add(new Pair<>(e.getTarget(), e.factAtTarget()));
+    }
+    filled = fill(createSummaries());
+  }
+
+  private ISummaries<Unit, SootMethod, AccessGraph> createSummaries() {
+    if (summaries.equals("concurrent"))
+      return new ConcurrentSummaries(fixture.getICFG());
+    return new Summaries(fixture.createContext());
+  }
+
+  private ISummaries<Unit, SootMethod, AccessGraph> fill(
+      ISummaries<Unit, SootMethod, AccessGraph> s) {
+    for (int i = 0; i < edges.size(); i++)
+      s.addEndSummary(methods.get(i), edges.get(i));
+    return s;
+  }
+
+  @Benchmark
+  public ISummaries<Unit, SootMethod, AccessGraph> addEndSummary() {
+    return fill(createSummaries());
+  }
+
+  @Benchmark
+  public void endSummaryHit(Blackhole bh) {
+    for (int i = 0; i < edges.size(); i++)
+      bh.consume(filled.endSummary(methods.get(i), edges.get(i).getStartNode()));
+  }
+
+  @Benchmark
+  public void endSummaryMiss(Blackhole bh) {
+    for (int i = 0; i < edges.size(); i++)
+      bh.consume(filled.endSummary(methods.get(i), unknownStartNodes.get(i)));
+  }
+}
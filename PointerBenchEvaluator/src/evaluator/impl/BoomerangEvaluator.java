@@ -1,19 +1,14 @@
 package evaluator.impl;
 
-import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Set;
 
 import alias.Util;
 import boomerang.AliasFinder;
-import boomerang.BoomerangContext;
 import boomerang.accesspath.AccessGraph;
 import boomerang.accesspath.WrappedSootField;
-import boomerang.cache.AliasResults;
 import boomerang.context.AllCallersRequester;
 import evaluator.Main;
 import evaluator.pointerbench.parser.QueryInfo;
-import heros.solver.Pair;
 import soot.Local;
 import soot.RefType;
 import soot.Scene;
@@ -21,55 +16,43 @@ import soot.SootField;
 import soot.SootMethod;
 import soot.Type;
 import soot.Unit;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangContextFactory;
+import soot.jimple.infoflow.aliasing.boomerang.CachingContextRequester;
+import soot.jimple.infoflow.aliasing.boomerang.StreamingAliasFinder;
 import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
 import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 import soot.util.Chain;
 
 public class BoomerangEvaluator extends Evaluator {
-  protected AliasFinder dart;
+  protected StreamingAliasFinder dart;
   protected InfoflowCFG cfg;
+  // Shared by all queries of the evaluator, so the callers of a context are only requested once
+  protected CachingContextRequester contextRequester;
 
   public BoomerangEvaluator(QueryInfo queryInfo) {
     super(queryInfo);
   }
 
   private void createDart() {
-    dart = null;
-    cfg = new InfoflowCFG();
-    BackwardsInfoflowCFG bwcfg = new BackwardsInfoflowCFG(cfg);
-    BoomerangContext context = new BoomerangContext(cfg, bwcfg);
-    context.budgetInMilliSeconds = Main.ANALYSIS_TIMEOUT_MS;
-    context.startTime = System.currentTimeMillis();
-    dart = new AliasFinder(context);
+    if (cfg == null) {
+      cfg = new InfoflowCFG();
+      contextRequester = new CachingContextRequester(
+          new AllCallersRequester<BiDiInterproceduralCFG<Unit, SootMethod>>(cfg));
+      BoomerangContextFactory factory =
+          new BoomerangContextFactory(cfg, new BackwardsInfoflowCFG(cfg));
+      factory.setBudgetInMilliSeconds(Main.ANALYSIS_TIMEOUT_MS);
+      dart = new StreamingAliasFinder(factory);
+    }
     AliasFinder.setTypeChecking(true);
   }
 
   @Override
   protected boolean alias(String l) {
     createDart();
-    AliasResults res1 =
-        dart.findAliasAtStmt(parse(testVariable), testStmt,
-            new AllCallersRequester<BiDiInterproceduralCFG<Unit, SootMethod>>(cfg));
-    if (res1.isEmpty()) {
-      return false;
-    }
-
-    createDart();
-    AliasResults res2 =
-        dart.findAliasAtStmt(parse(l), testStmt,
-            new AllCallersRequester<BiDiInterproceduralCFG<Unit, SootMethod>>(cfg));
-    if (res2.isEmpty())
-      return false;
-    for (Pair<Unit, AccessGraph> r1 : res1.keySet()) {
-      Unit alloc1 = r1.getO2().getSourceStmt();
-      for (Pair<Unit, AccessGraph> r2 : res2.keySet()) {
-        Unit alloc2 = r2.getO2().getSourceStmt();
-        if (alloc1 != null && alloc1.equals(alloc2))
-          return true;
-      }
-    }
-    return false;
+    // Both queries run jointly and stop at the first common allocation site
+    return dart.mayAlias(parse(testVariable), parse(l), testStmt, contextRequester);
   }
 
   private AccessGraph parse(String l) {
@@ -79,17 +62,8 @@ public class BoomerangEvaluator extends Evaluator {
   @Override
   protected int getPointsToSize() {
     createDart();
-    AliasResults res1 =
-        dart.findAliasAtStmt(parse(testVariable), testStmt,
-            new AllCallersRequester<BiDiInterproceduralCFG<Unit, SootMethod>>(cfg));
-    if (res1 == null)
-      return 0;
-    Set<Unit> allocSites = new HashSet<>();
-    for (Pair<Unit, AccessGraph> o : res1.keySet()) {
-      allocSites.add(o.getO2().getSourceStmt());
-    }
-
-    return allocSites.size();
+    return dart
+        .pointsTo(new AliasQuery(parse(testVariable), testStmt, contextRequester)).size();
   }
 
   public static AccessGraph stringToAccessPath(Chain<Local> locals, String arg) {
@@ -21,6 +21,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,12 +90,84 @@ public class Infoflow extends AbstractInfoflow {
   private static boolean oneResultPerAccessPath = false;
   private static boolean mergeNeighbors = false;
 
-  public static long aliasQueryCounter = 0;
+  // Alias queries run on the threads of the forward solver
+  public static final AtomicLong aliasQueryCounter = new AtomicLong();
   public static int aliasTimeoutInMilliSeconds = 1000;
+  /**
+   * Maximal number of end edges Boomerang keeps in its cross-query summary cache per direction, 0
+   * recomputes the summaries for every query.
+   */
+  public static long aliasSummaryCacheWeight = 0;
+  /**
+   * Directory in which Boomerang persists its summaries between runs, null to not persist them.
+   * Takes precedence over {@link #aliasSummaryCacheWeight}.
+   */
+  public static String aliasSummaryDirectory = null;
+  /**
+   * Maximal number of propagations of a single Boomerang query. A positive budget replaces
+   * {@link #aliasTimeoutInMilliSeconds}, which makes the results independent of the machine; 0
+   * uses the timeout.
+   */
+  public static long aliasPropagationBudget = 0;
+  /**
+   * File the metrics of Boomerang's queries are written to, as JSON if it ends with .json and as
+   * CSV otherwise. Null to not measure the queries.
+   */
+  public static String aliasMetricsFile = null;
+  /**
+   * Measure one out of this many Boomerang queries if {@link #aliasMetricsFile} is set.
+   */
+  public static int aliasMetricsSamplingInterval = 1;
+  /**
+   * Maximal number of measured Boomerang queries kept for {@link #aliasMetricsFile}, the oldest
+   * records are dropped first.
+   */
+  public static int aliasMetricsMaxRecords = 5000;
+  /**
+   * File with the library summaries Boomerang steps over instead of analysing the methods, e.g.
+   * {@code LibrarySummaries.DEFAULT_FILE}. Null to analyse all library methods.
+   */
+  public static String aliasLibrarySummariesFile = null;
+  /**
+   * Whether Boomerang refines the callees of virtual calls with its own points-to queries, see
+   * {@code DemandCallGraphCFG}. Meant for a cheap call graph, e.g.
+   * {@link CallgraphAlgorithm#CHA}.
+   */
+  public static boolean aliasRefineCallGraph = false;
+  /**
+   * Whether Boomerang answers its field pre-analysis queries from a
+   * {@code TransitiveFieldPreanalysis} instead of the {@code FieldPreanalysis} of the CFG. The
+   * CFG computes its own pre-analysis either way when it is built.
+   */
+  public static boolean aliasTransitiveFieldPreanalysis = true;
+  /**
+   * Number of threads that compute the field facts of all reachable methods before the first
+   * query if {@link #aliasTransitiveFieldPreanalysis} is set. 0 computes the facts of a method on
+   * first use.
+   */
+  public static int aliasPreanalysisThreads = Runtime.getRuntime().availableProcessors();
+  /**
+   * Whether Boomerang keeps one context for all its queries and only drops the state of the last
+   * query, so the summaries of earlier queries are reused. The summaries are bounded by
+   * {@link #aliasSummaryCacheWeight} or, if that is 0, by a default weight.
+   */
+  public static boolean aliasReuseContext = false;
+  /**
+   * Maximal number of alias query results Boomerang keeps in memory, the least recently used ones
+   * are computed again when needed.
+   */
+  public static long aliasQueryMemoSize = 100000;
+  /**
+   * Whether Boomerang's alias queries are answered asynchronously, the aliases are then injected
+   * into the forward solver as new path edges. The queries run on a single worker, as they are
+   * serialized by the Boomerang lock anyway. Otherwise the queries are answered synchronously in
+   * the flow functions.
+   */
+  public static boolean aliasAsyncQueries = false;
 
   public static long SBandDACounter = 0;
-  public static long aliasQueryCounterTimeout = 0;
-  public static long aliasQueryTime = 0;
+  public static final AtomicLong aliasQueryCounterTimeout = new AtomicLong();
+  public static final AtomicLong aliasQueryTime = new AtomicLong();
 
   private InfoflowResults results = null;
   private IPathBuilderFactory pathBuilderFactory;
@@ -420,9 +493,9 @@ public class Infoflow extends AbstractInfoflow {
     final IAliasingStrategy aliasingStrategy;
 
     selectAliasingAlgorithm();
-    Infoflow.aliasQueryCounter = 0;
-    Infoflow.aliasQueryCounterTimeout = 0;
-    Infoflow.aliasQueryTime = 0;
+    Infoflow.aliasQueryCounter.set(0);
+    Infoflow.aliasQueryCounterTimeout.set(0);
+    Infoflow.aliasQueryTime.set(0);
     switch (aliasingAlgorithm) {
       case FlowSensitive:
         backProblem = new BackwardsInfoflowProblem(new BackwardsInfoflowCFG(iCfg), sourcesSinks);
@@ -586,9 +659,9 @@ public class Infoflow extends AbstractInfoflow {
         writer.write(aliasingAlgorithm.name() + ";");
         String time = (after - before) + ";";
         writer.write(time);
-        String queries = Infoflow.aliasQueryCounter + ";";
+        String queries = Infoflow.aliasQueryCounter.get() + ";";
         writer.write(queries);
-        String timeouts = Infoflow.aliasQueryCounterTimeout + ";";
+        String timeouts = Infoflow.aliasQueryCounterTimeout.get() + ";";
         writer.write(timeouts);
         queries = Infoflow.SBandDACounter + ";";
         writer.write(queries);
@@ -665,7 +738,7 @@ public class Infoflow extends AbstractInfoflow {
 
         String resultSize = results.getResults().size() + ";";
         writer.write(resultSize);
-        String aliasQueryTime = Infoflow.aliasQueryTime + ";";
+        String aliasQueryTime = Infoflow.aliasQueryTime.get() + ";";
         writer.write(aliasQueryTime);
         writer.close();
       }
@@ -1,39 +1,54 @@
 package soot.jimple.infoflow.aliasing;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import boomerang.AliasFinder;
-import boomerang.BoomerangContext;
 import boomerang.BoomerangTimeoutException;
 import boomerang.accesspath.AccessGraph;
-import boomerang.accesspath.WrappedSootField;
 import boomerang.cache.AliasResults;
 import boomerang.cache.Query;
-import boomerang.cache.ResultCache;
 import boomerang.context.Context;
 import boomerang.context.IContextRequester;
-import heros.solver.Pair;
+import heros.solver.PathEdge;
 import soot.ArrayType;
 import soot.Local;
 import soot.SootField;
 import soot.SootMethod;
-import soot.Type;
 import soot.Unit;
 import soot.Value;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.aliasing.boomerang.AccessPathConverter;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQueryMemo;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangContextFactory;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangLock;
+import soot.jimple.infoflow.aliasing.boomerang.BudgetedAliasFinder;
+import soot.jimple.infoflow.aliasing.boomerang.DemandCallGraphCFG;
+import soot.jimple.infoflow.aliasing.boomerang.IgnoredMethods;
+import soot.jimple.infoflow.aliasing.boomerang.IncomingContextIndex;
+import soot.jimple.infoflow.aliasing.boomerang.LibrarySummaries;
+import soot.jimple.infoflow.aliasing.boomerang.ManagedBoomerangContext;
+import soot.jimple.infoflow.aliasing.boomerang.QueryBudget;
+import soot.jimple.infoflow.aliasing.boomerang.QueryMetricsLog;
+import soot.jimple.infoflow.aliasing.boomerang.TransitiveFieldPreanalysis;
 import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.handlers.TaintPropagationHandler.FlowFunctionType;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
-import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 
 /**
@@ -43,53 +58,139 @@ import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
  */
 public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
 
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
   private final IInfoflowCFG icfg;
-  private Multimap<Pair<SootMethod, Abstraction>, Pair<Unit, Abstraction>> incomingMap =
-      HashMultimap.create();
+  // Written by the threads of the forward solver, read by the context requests of the queries
+  private final IncomingContextIndex<Abstraction, Context> incomingContexts =
+      new IncomingContextIndex<>();
   private IInfoflowCFG bwicfg;
+  private BoomerangContextFactory contextFactory;
+  private final DemandCallGraphCFG demandCallGraph;
+  // Only used while holding BoomerangLock.LOCK
   private AliasFinder boomerang;
-  private LinkedList<String> methodIgnoreList;
-  private Map<Query, AliasResults> alreadyQueried = new HashMap<>();
+  private final IgnoredMethods ignoredMethods =
+      new IgnoredMethods(Arrays.asList("int hashCode()", "boolean equals(java.lang.Object)"));
+  // Runs the queries asynchronously if configured, null to run them in the solver's threads
+  private final ExecutorService queryExecutor;
+  private final AliasQueryMemo queryMemo = new AliasQueryMemo(Infoflow.aliasQueryMemoSize);
+  private final AccessPathConverter converter;
 
   public BoomerangAliasStrategy(IInfoflowCFG cfg) {
     super(cfg);
     this.icfg = cfg;
-    this.bwicfg = new BackwardsInfoflowCFG(icfg);
-    this.boomerang = new AliasFinder(new BoomerangContext(icfg, bwicfg));
-
-    methodIgnoreList = new LinkedList<String>();
-    methodIgnoreList.add("int hashCode()");
-    methodIgnoreList.add("boolean equals(java.lang.Object)");
+    this.demandCallGraph = Infoflow.aliasRefineCallGraph ? new DemandCallGraphCFG(icfg) : null;
+    IInfoflowCFG queryCfg = demandCallGraph != null ? demandCallGraph : icfg;
+    if (Infoflow.aliasTransitiveFieldPreanalysis) {
+      TransitiveFieldPreanalysis preanalysis = new TransitiveFieldPreanalysis();
+      if (Infoflow.aliasPreanalysisThreads > 0)
+        preanalysis.computeAll(Infoflow.aliasPreanalysisThreads);
+      this.contextFactory = BoomerangContextFactory.withPreanalysis(queryCfg, preanalysis);
+    } else {
+      this.contextFactory = new BoomerangContextFactory(queryCfg);
+    }
+    this.bwicfg = contextFactory.getBackwardICFG();
+    if (Infoflow.aliasPropagationBudget > 0)
+      contextFactory.setQueryBudget(new QueryBudget(Infoflow.aliasPropagationBudget, 0, 0));
+    if (Infoflow.aliasMetricsFile != null)
+      contextFactory.setMetricsLog(new QueryMetricsLog(Infoflow.aliasMetricsSamplingInterval,
+          Infoflow.aliasMetricsMaxRecords));
+    if (Infoflow.aliasSummaryCacheWeight > 0)
+      contextFactory.setSummaryCache(Infoflow.aliasSummaryCacheWeight);
+    if (Infoflow.aliasSummaryDirectory != null) {
+      try {
+        contextFactory.setPersistentSummaries(new File(Infoflow.aliasSummaryDirectory));
+      } catch (IOException e) {
+        logger.warn("Could not open persisted alias summaries, computing them from scratch", e);
+      }
+    }
+    if (Infoflow.aliasLibrarySummariesFile != null) {
+      try {
+        contextFactory.setLibrarySummaries(
+            LibrarySummaries.fromFile(new File(Infoflow.aliasLibrarySummariesFile)));
+      } catch (IOException e) {
+        logger.warn("Could not read library summaries, analysing the library methods", e);
+      }
+    }
+    // After the summary configuration, which bounds the summaries kept by the reused context
+    contextFactory.setReuseContexts(Infoflow.aliasReuseContext);
+    this.converter =
+        new AccessPathConverter(contextFactory.getInterner(), Infoflow.getAccessPathLength());
+    this.boomerang = contextFactory.createAliasFinder();
+    this.queryExecutor = Infoflow.aliasAsyncQueries
+        ? Executors.newSingleThreadExecutor(new QueryThreadFactory()) : null;
   }
 
   private boolean isIgnoredMethod(SootMethod m) {
-    for (String ign : methodIgnoreList) {
-      if (m.getSignature().contains(ign))
-        return true;
-    }
-
-    return false;
+    return ignoredMethods.isIgnored(m);
   }
 
   @Override
   public void computeAliasTaints(final Abstraction d1, final Stmt src, final Value targetValue,
-      Set<Abstraction> taintSet, SootMethod method, Abstraction newAbs) {
+      Set<Abstraction> taintSet, SootMethod method, final Abstraction newAbs) {
     newAbs.getAccessPath();
-    Local base = newAbs.getAccessPath().getPlainValue();
+    final Local base = newAbs.getAccessPath().getPlainValue();
 
     if (isIgnoredMethod(icfg.getMethodOf(src)))
       return;
     if (base == null)
       return;
 
-    // There are two different queries necessary: At field writes and at method return statements,
-    // when there might be new alias in the caller scope.
+    if (queryExecutor == null) {
+      computeAliasTaints(d1, src, taintSet, newAbs, base);
+      return;
+    }
+    // The solver continues with other facts, the aliases are injected as new path edges once the
+    // queries are answered
+    final IInfoflowSolver solver = getForwardSolver();
+    solver.beginExternalWork();
+    queryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Set<Abstraction> aliases = new HashSet<>();
+          computeAliasTaints(d1, src, aliases, newAbs, base);
+          injectAliasTaints(solver, d1, src, newAbs, aliases);
+        } catch (RuntimeException e) {
+          logger.error("Asynchronous alias query at " + src + " failed", e);
+          // Missing aliases would make the results silently incomplete, so the solver fails
+          solver.failExternalWork(e);
+        } finally {
+          solver.endExternalWork();
+        }
+      }
+    });
+  }
+
+  private void computeAliasTaints(Abstraction d1, Stmt src, Set<Abstraction> taintSet,
+      Abstraction newAbs, Local base) {
+    // There are two different queries necessary: At field writes and at method return
+    // statements, when there might be new alias in the caller scope.
     if (src.containsInvokeExpr())
       handleReturn(d1, src, taintSet, newAbs, base);
     else
       handleFieldWrite(d1, src, taintSet, newAbs, base);
   }
 
+  /**
+   * Propagates the aliases from where the flow function would have returned them: the return sites
+   * of a call, the successors of any other statement. The taint propagation handlers see them like
+   * the results of that flow function.
+   */
+  private void injectAliasTaints(IInfoflowSolver solver, Abstraction d1, Stmt src,
+      Abstraction newAbs, Set<Abstraction> aliases) {
+    aliases = solver.getTabulationProblem().notifyOutFlowHandlers(src, d1, newAbs, aliases,
+        src.containsInvokeExpr() ? FlowFunctionType.ReturnFlowFunction
+            : FlowFunctionType.NormalFlowFunction);
+    if (aliases == null || aliases.isEmpty())
+      return;
+    Collection<Unit> targets =
+        src.containsInvokeExpr() ? icfg.getReturnSitesOfCallAt(src) : icfg.getSuccsOf(src);
+    for (Abstraction alias : aliases)
+      for (Unit target : targets)
+        solver.processEdge(new PathEdge<Unit, Abstraction>(d1, target, alias));
+  }
+
   private void handleFieldWrite(final Abstraction d1, final Stmt src, Set<Abstraction> taintSet,
       Abstraction newAbs, Local base) {
     if (base == null)
@@ -98,31 +199,26 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
     SootMethod method = icfg.getMethodOf(src);
 
     // Query for the base variable
-    AliasResults res = queryBoomerang(new AccessGraph(base, base.getType()), src, method, d1);
-    Set<AccessGraph> accessPathOnly = res.mayAliasSet();
-    SootField[] fields = newAbs.getAccessPath().getFields();
-    // append the fields the incoming access path had to the result set
-    if (fields != null)
-      accessPathOnly =
-          AliasResults.appendFields(accessPathOnly, toListFieldWithStmt(fields), boomerang.context);
-    for (AccessGraph ap : accessPathOnly) {
-      Abstraction flowDroidAccessPath = toFlowDroidAccessPath(ap, src, newAbs);
-      // add all access path to the taintSet for further propagation
-      if (flowDroidAccessPath != null)
-        taintSet.add(flowDroidAccessPath);
+    AccessGraph accessPath;
+    synchronized (BoomerangLock.LOCK) {
+      accessPath = converter.toAccessGraph(base, null);
+    }
+    AliasResults res = queryBoomerang(accessPath, src, method, d1);
+    synchronized (BoomerangLock.LOCK) {
+      Set<AccessGraph> accessPathOnly = res.mayAliasSet();
+      SootField[] fields = newAbs.getAccessPath().getFields();
+      // append the fields the incoming access path had to the result set
+      if (fields != null)
+        accessPathOnly = converter.appendFields(accessPathOnly, fields, boomerang.context);
+      for (AccessGraph ap : accessPathOnly) {
+        Abstraction flowDroidAccessPath = toFlowDroidAccessPath(ap, src, newAbs);
+        // add all access path to the taintSet for further propagation
+        if (flowDroidAccessPath != null)
+          taintSet.add(flowDroidAccessPath);
+      }
     }
   }
 
-  private WrappedSootField[] toListFieldWithStmt(SootField[] fields) {
-    LinkedList<WrappedSootField> list = new LinkedList<>();
-    if (fields == null)
-      return null;
-    for (SootField f : fields)
-      list.add(new WrappedSootField(f, f.getType(), null));
-    WrappedSootField[] fieldws = new WrappedSootField[list.size()];
-    fieldws = list.toArray(fieldws);
-    return fieldws;
-  }
 
   private void handleReturn(Abstraction d1, Stmt src, Set<Abstraction> taintSet,
       Abstraction newAbs, Local base) {
@@ -135,14 +231,21 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
 
       // Special handling for arrays
       SootField[] fields = newAbs.getAccessPath().getFields();
-      AccessGraph accessPath = new AccessGraph(base, base.getType(), toListFieldWithStmt(fields));
-      SootMethod method = boomerang.context.icfg.getMethodOf(src);
+      AccessGraph accessPath;
+      synchronized (BoomerangLock.LOCK) {
+        accessPath = converter.toAccessGraph(base, fields);
+      }
+      SootMethod method = icfg.getMethodOf(src);
 
       AliasResults res = queryBoomerang(accessPath, src, method, d1);
-      Set<AccessGraph> accessPathOnly = res.mayAliasSet();
+      synchronized (BoomerangLock.LOCK) {
+        Set<AccessGraph> accessPathOnly = res.mayAliasSet();
 
-      for (AccessGraph ap : accessPathOnly) {
-        taintSet.add(toFlowDroidAccessPath(ap, src, newAbs));
+        for (AccessGraph ap : accessPathOnly) {
+          Abstraction newAp = toFlowDroidAccessPath(ap, src, newAbs);
+          if (newAp != null)
+            taintSet.add(newAp);
+        }
       }
       return;
     }
@@ -151,68 +254,85 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
     if (d1.equals(newAbs))
       return;
     SootField[] fields = newAbs.getAccessPath().getFields();
-    AccessGraph accessPath = new AccessGraph(base, base.getType(), toListFieldWithStmt(fields));
-    Set<AccessGraph> withoutLastFields = accessPath.popLastField();
+    Set<AccessGraph> withoutLastFields;
+    synchronized (BoomerangLock.LOCK) {
+      withoutLastFields = converter.toAccessGraph(base, fields).popLastField();
+    }
     SootMethod method = icfg.getMethodOf(src);
     for (AccessGraph withoutLastField : withoutLastFields) {
       // trigger query for access graph with droped/popped last field.
       AliasResults res = queryBoomerang(withoutLastField, src, method, d1);
-      Set<AccessGraph> accessPathOnly = res.mayAliasSet();
-      if (lastField != null)
-        // add the last field again.
-        accessPathOnly =
-            AliasResults.appendField(accessPathOnly,
-            new WrappedSootField(lastField, lastField.getType(), null), boomerang.context);
-
-      for (AccessGraph ap : accessPathOnly) {
-        Abstraction flowDroidAccessPath = toFlowDroidAccessPath(ap, src, newAbs);
-        if (flowDroidAccessPath != null)
-          taintSet.add(flowDroidAccessPath);
+      synchronized (BoomerangLock.LOCK) {
+        Set<AccessGraph> accessPathOnly = res.mayAliasSet();
+        if (lastField != null)
+          // add the last field again.
+          accessPathOnly = converter.appendField(accessPathOnly, lastField, boomerang.context);
+
+        for (AccessGraph ap : accessPathOnly) {
+          Abstraction flowDroidAccessPath = toFlowDroidAccessPath(ap, src, newAbs);
+          if (flowDroidAccessPath != null)
+            taintSet.add(flowDroidAccessPath);
+        }
       }
     }
   }
 
+  /**
+   * Looks the query up in the memo without holding the lock, so a thread that requests a query
+   * another thread is computing waits for that computation instead of the lock. Boomerang keeps
+   * global state, e.g. the field numbering of its field graphs, so the queries and the conversion
+   * of their results run alone.
+   */
   private AliasResults queryBoomerang(final AccessGraph ap, final Unit stmt, SootMethod method,
       final Abstraction d1) {
-    Query query = new Query(ap, stmt, method);
-    if (!alreadyQueried.containsKey(query)) {
-      Infoflow.aliasQueryCounter++;
-    } else {
-      return alreadyQueried.get(query);
-    }
+    return queryMemo.get(new Query(ap, stmt, method), new Callable<AliasResults>() {
+      @Override
+      public AliasResults call() {
+        synchronized (BoomerangLock.LOCK) {
+          return runBoomerang(ap, stmt, d1);
+        }
+      }
+    });
+  }
+
+  private AliasResults runBoomerang(AccessGraph ap, Unit stmt, Abstraction d1) {
+    Infoflow.aliasQueryCounter.incrementAndGet();
     boomerang.context.budgetInMilliSeconds = Infoflow.aliasTimeoutInMilliSeconds;
     long start = System.currentTimeMillis();
     boomerang.context.startTime = start;
     AliasResults res = new AliasResults();
+    boolean aborted = false;
     try {
 
       // triggers the query for Boomerang, as a context requestor we use the
       // FlowDroidContextRequestor. This follows the incoming set of the solver (by using the
       // contextMap)
-      res = boomerang.findAliasAtStmt(ap, stmt, new FlowDroidContextRequestor(d1));
+      IContextRequester requester = new FlowDroidContextRequestor(d1);
+      if (contextFactory.getMetricsLog() != null)
+        requester = ((ManagedBoomerangContext) boomerang.context).getMetricsCollector()
+            .observe(requester);
+      res = boomerang.findAliasAtStmt(ap, stmt, requester);
+    } catch (BoomerangTimeoutException e) {
+      // Use the aliases found before the query ran out of budget
+      res = BudgetedAliasFinder.terminate(boomerang.context, new AliasQuery(ap, stmt));
+      Infoflow.aliasQueryCounterTimeout.incrementAndGet();
+      queryMemo.countTimeout();
+      aborted = true;
     } catch (Exception e) {
+      aborted = true;
       try {
         boomerang.context.forceTerminate();
       } catch (ThreadDeath e1) {
       }
-
-      if (e instanceof BoomerangTimeoutException) {
-        Infoflow.aliasQueryCounterTimeout++;
-      } else
-        e.printStackTrace();
+      e.printStackTrace();
     }
-    BoomerangContext boomerangContext = new BoomerangContext(icfg, bwicfg);
-
-    // Reuse the same internal cache for all queries
-    ResultCache cache = boomerang.context.querycache;
-    boomerangContext.querycache = cache;
-    // reinstantiate Boomerang, to remove path edges etc for next query.
-    boomerang = new AliasFinder(boomerangContext);
+    // Reuse the same internal cache and, if enabled, the summary cache or the whole context for all
+    // queries. Otherwise Boomerang is reinstantiated, to remove path edges etc for next query.
+    boomerang = new AliasFinder(contextFactory.recycle(boomerang.context, aborted));
     long after = System.currentTimeMillis();
-    Infoflow.aliasQueryTime += (after - start);
-    alreadyQueried.put(query, res);
-    return res;
-
+    Infoflow.aliasQueryTime.addAndGet(after - start);
+    // Results stay in the memo until evicted, keep only canonical access graphs
+    return contextFactory.getInterner().intern(res);
   }
 
   /**
@@ -221,58 +341,9 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
    * @return
    */
   private Abstraction toFlowDroidAccessPath(AccessGraph ap, Stmt src, Abstraction newAbs) {
-    if (ap.getFieldCount() < 1) {
-      return newAbs.deriveNewAbstraction(new soot.jimple.infoflow.data.AccessPath(ap.getBase(),
-          newAbs.getAccessPath().isCutOffApproximation()), src);
-    }
-    WrappedSootField[] fields = ap.getRepresentative();
-    ArrayList<SootField> fdFields = new ArrayList<>();
-    ArrayList<Type> fdFieldType = new ArrayList<>();
-    int accessPathLength = Infoflow.getAccessPathLength();
-    for (int i = 0; i < Math.min(fields.length, accessPathLength); i++) {
-      WrappedSootField field = fields[i];
-      if (field.getField().equals(AliasFinder.ARRAY_FIELD)) {
-        if (!fdFieldType.isEmpty()) {
-          int last = fdFieldType.size() - 1;
-          Type type = fdFieldType.get(last);
-          Type buildArrayOrAddDimension = buildArrayOrAddDimension(type);
-          fdFieldType.remove(last);
-          fdFieldType.add(buildArrayOrAddDimension);
-        }
-      } else {
-        fdFields.add(field.getField());
-        fdFieldType.add(field.getField().getType());
-      }
-    }
-    Type[] fdFieldTypeArray = fdFieldType.toArray(new Type[] {});
-    SootField[] fdFieldArray = fdFields.toArray(new SootField[] {});
-
-    Value plainValue = ap.getBase();
-    Type baseType = null;
-    if (plainValue != null)
-      baseType = plainValue.getType();
-
-    if (plainValue == null && fdFields.isEmpty())
-      return null;
-    return newAbs.deriveNewAbstraction(new soot.jimple.infoflow.data.AccessPath(plainValue,
-        fdFieldArray, baseType, fdFieldTypeArray,
-        (newAbs.getAccessPath().isCutOffApproximation() || fields.length > accessPathLength)), src);
-  }
-
-
-  /**
-   * Builds a new array of the given type if it is a base type or increments the dimensions of the
-   * given array by 1 otherwise.
-   * 
-   * @param type The base type or incoming array
-   * @return The resulting array
-   */
-  private Type buildArrayOrAddDimension(Type type) {
-    if (type instanceof ArrayType) {
-      ArrayType array = (ArrayType) type;
-      return array.makeArrayType();
-    } else
-      return ArrayType.v(type, 1);
+    soot.jimple.infoflow.data.AccessPath path =
+        converter.toAccessPath(ap, newAbs.getAccessPath().isCutOffApproximation());
+    return path == null ? null : newAbs.deriveNewAbstraction(path, src);
   }
 
   @Override
@@ -280,9 +351,9 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
       Unit callSite, Abstraction source, Abstraction d1) {
     // This is called whenever something is added to the incoming set of the forward solver of the
     // FlowDroid IFDS solver.
-    Pair<SootMethod, Abstraction> calleepair = new Pair<>(callee, d3);
-    Pair<Unit, Abstraction> callerpair = new Pair<>(callSite, d1);
-    incomingMap.put(calleepair, callerpair);
+    // Callers in ignored methods are never requested as contexts
+    if (!isIgnoredMethod(icfg.getMethodOf(callSite)))
+      incomingContexts.add(callee, d3, new FlowDroidContext(callSite, d1));
   }
 
   @Override
@@ -311,10 +382,10 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
       Unit callSite = cont.getStmt();
       SootMethod methodOf = icfg.getMethodOf(callSite);
       Abstraction abstraction = cont.getAbstraction();
-      Set<Context> boomerangCallerContexts = new HashSet<>();
 
       if (BoomerangAliasStrategy.this.getForwardSolver().getZeroValue().equals(d1)) {
         // If we reached the 0-Fact the analysis propagates to all callers
+        Set<Context> boomerangCallerContexts = new HashSet<>();
         Collection<Unit> callersOf = icfg.getCallersOf(methodOf);
         for (Unit call : callersOf) {
           if (isIgnoredMethod(icfg.getMethodOf(call)))
@@ -325,20 +396,9 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
         return boomerangCallerContexts;
       }
 
-      // If we did not have the 0-Fact as start fact, we query the incomingMap to see via which
-      // callsite the forward analysis entered a method
-      Collection<Pair<Unit, Abstraction>> callerContexts =
-          incomingMap.get(new Pair<SootMethod, Abstraction>(methodOf, abstraction));
-
-
-      for (Pair<Unit, Abstraction> callerContext : callerContexts) {
-        if (isIgnoredMethod(icfg.getMethodOf(callerContext.getO1())))
-          continue;
-        FlowDroidContext newContext =
-            new FlowDroidContext(callerContext.getO1(), callerContext.getO2());
-        boomerangCallerContexts.add(newContext);
-      }
-      return boomerangCallerContexts;
+      // If we did not have the 0-Fact as start fact, we look up via which callsites the forward
+      // analysis entered the method with this fact
+      return incomingContexts.getCallerContexts(methodOf, abstraction);
     }
 
     @Override
@@ -413,6 +473,46 @@ public class BoomerangAliasStrategy extends AbstractBulkAliasStrategy {
   }
 
   @Override
-  public void shutdown() {}
+  public void shutdown() {
+    try {
+      contextFactory.savePersistentSummaries();
+    } catch (IOException e) {
+      logger.warn("Could not persist alias summaries", e);
+    }
+    if (contextFactory.getForwardSummaries() != null) {
+      logger.info("Boomerang forward summaries: {}", contextFactory.getForwardSummaries());
+      logger.info("Boomerang backward summaries: {}", contextFactory.getBackwardSummaries());
+    }
+    logger.info("Boomerang alias queries: {}", queryMemo);
+    logger.info("Boomerang access graphs: {}", contextFactory.getInterner());
+    if (demandCallGraph != null)
+      logger.info("Boomerang call graph refinement: {}", demandCallGraph);
+    if (queryExecutor != null)
+      queryExecutor.shutdownNow();
+    if (contextFactory.getMetricsLog() != null)
+      writeMetrics(contextFactory.getMetricsLog(), Infoflow.aliasMetricsFile);
+  }
+
+  private static class QueryThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "Boomerang alias query " + threadCounter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+
+  private void writeMetrics(QueryMetricsLog metrics, String fileName) {
+    try (FileWriter writer = new FileWriter(fileName)) {
+      if (fileName.endsWith(".json"))
+        metrics.writeJson(writer);
+      else
+        metrics.writeCsv(writer);
+    } catch (IOException e) {
+      logger.warn("Could not write alias query metrics", e);
+    }
+  }
 
 }
@@ -3,39 +3,38 @@ package soot.jimple.infoflow.aliasing;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
 import java.util.Set;
-
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import java.util.concurrent.Callable;
 
 import boomerang.AliasFinder;
 import boomerang.BoomerangContext;
 import boomerang.BoomerangTimeoutException;
 import boomerang.accesspath.AccessGraph;
-import boomerang.accesspath.WrappedSootField;
 import boomerang.cache.AliasResults;
 import boomerang.cache.Query;
 import boomerang.cache.ResultCache;
 import boomerang.context.Context;
 import boomerang.context.IContextRequester;
-import heros.solver.Pair;
 import soot.ArrayType;
 import soot.Local;
 import soot.Scene;
 import soot.SootField;
 import soot.SootMethod;
-import soot.Type;
 import soot.Unit;
 import soot.Value;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.aliasing.boomerang.AccessGraphInterner;
+import soot.jimple.infoflow.aliasing.boomerang.AccessPathConverter;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQueryMemo;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangContextFactory;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangLock;
+import soot.jimple.infoflow.aliasing.boomerang.IgnoredMethods;
+import soot.jimple.infoflow.aliasing.boomerang.IncomingContextIndex;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
 import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
@@ -49,13 +48,19 @@ import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
 
   private final IInfoflowCFG icfg;
-  private Multimap<Pair<SootMethod, Abstraction>, Pair<Unit, Abstraction>> incomingMap =
-      HashMultimap.create();
+  // Written by the threads of the forward solver, read by the context requests of the queries
+  private final IncomingContextIndex<Abstraction, Context> incomingContexts =
+      new IncomingContextIndex<>();
   private IInfoflowCFG bwicfg;
   private AliasFinder boomerang;
-  private LinkedList<String> methodIgnoreList;
-  private Map<Query, AliasResults> alreadyQueried = new HashMap<>();
+  private final IgnoredMethods ignoredMethods =
+      new IgnoredMethods(Arrays.asList("int hashCode()", "boolean equals(java.lang.Object)"));
+  private final AliasQueryMemo queryMemo = new AliasQueryMemo(Infoflow.aliasQueryMemoSize);
+  private final AccessPathConverter converter =
+      new AccessPathConverter(new AccessGraphInterner(), Infoflow.getAccessPathLength());
   private AliasFinder boomerangAC;
+  private final BoomerangContextFactory contextFactory;
+  private final BoomerangContextFactory contextFactoryAC;
 
   public int moreContextRequest;
   public int allPossibleContext;
@@ -92,21 +97,30 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
       throw new RuntimeException("OOPS");
     this.icfg = cfg;
     this.bwicfg = new BackwardsInfoflowCFG(icfg);
-    this.boomerang = new AliasFinder(new BoomerangContext(icfg, bwicfg));
-    this.boomerangAC = new AliasFinder(new BoomerangContext(icfg, bwicfg));
+    if (Infoflow.aliasReuseContext) {
+      // One factory per finder, the summaries of one must not speed up the queries of the other
+      this.contextFactory = createReusingFactory();
+      this.contextFactoryAC = createReusingFactory();
+      this.boomerang = new AliasFinder(contextFactory.createContext());
+      this.boomerangAC = new AliasFinder(contextFactoryAC.createContext());
+    } else {
+      this.contextFactory = null;
+      this.contextFactoryAC = null;
+      this.boomerang = new AliasFinder(new BoomerangContext(icfg, bwicfg));
+      this.boomerangAC = new AliasFinder(new BoomerangContext(icfg, bwicfg));
+    }
+  }
 
-    methodIgnoreList = new LinkedList<String>();
-    methodIgnoreList.add("int hashCode()");
-    methodIgnoreList.add("boolean equals(java.lang.Object)");
+  private BoomerangContextFactory createReusingFactory() {
+    BoomerangContextFactory factory = new BoomerangContextFactory(icfg, bwicfg);
+    if (Infoflow.aliasSummaryCacheWeight > 0)
+      factory.setSummaryCache(Infoflow.aliasSummaryCacheWeight);
+    factory.setReuseContexts(true);
+    return factory;
   }
 
   public boolean isIgnoredMethod(SootMethod m) {
-    for (String ign : methodIgnoreList) {
-      if (m.getSignature().contains(ign))
-        return true;
-    }
-
-    return false;
+    return ignoredMethods.isIgnored(m);
   }
 
   @Override
@@ -119,11 +133,13 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
       return;
     if (base == null)
       return;
-    if (src.containsInvokeExpr())
-      handleReturn(d1, src, taintSet, newAbs, base);
-    else
-      handleFieldWrite(d1, src, taintSet, newAbs, base);
-
+    // Boomerang keeps global state, the queries and the conversion of their results run alone
+    synchronized (BoomerangLock.LOCK) {
+      if (src.containsInvokeExpr())
+        handleReturn(d1, src, taintSet, newAbs, base);
+      else
+        handleFieldWrite(d1, src, taintSet, newAbs, base);
+    }
   }
 
   private void handleFieldWrite(final Abstraction d1, final Stmt src, Set<Abstraction> taintSet,
@@ -133,12 +149,12 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
 
     SootMethod method = icfg.getMethodOf(src);
 
-    AliasResults res = queryDart(new AccessGraph(base, base.getType()), src, method, d1);
+    AliasResults res = queryDart(converter.toAccessGraph(base, null), src, method, d1);
     Set<AccessGraph> accessPathOnly = res.mayAliasSet();
     SootField[] fields = newAbs.getAccessPath().getFields();
     if (fields != null)
       accessPathOnly =
-          AliasResults.appendFields(accessPathOnly, toListFieldWithStmt(fields), boomerang.context);
+          converter.appendFields(accessPathOnly, fields, boomerang.context);
     for (AccessGraph ap : accessPathOnly) {
       Abstraction flowDroidAccessPath = toFlowDroidAccessPath(ap, src, newAbs);
       if (flowDroidAccessPath != null)
@@ -146,23 +162,13 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
     }
   }
 
-  private WrappedSootField[] toListFieldWithStmt(SootField[] fields) {
-    LinkedList<WrappedSootField> list = new LinkedList<>();
-    if (fields == null)
-      return null;
-    for (SootField f : fields)
-      list.add(new WrappedSootField(f, f.getType(), null));
-    WrappedSootField[] fieldws = new WrappedSootField[list.size()];
-    fieldws = list.toArray(fieldws);
-    return fieldws;
-  }
 
   private void handleReturn(Abstraction d1, Stmt src, Set<Abstraction> taintSet,
       Abstraction newAbs, Local base) {
     SootField lastField = newAbs.getAccessPath().getLastField();
     if (newAbs.getAccessPath().getLastFieldType() instanceof ArrayType) {
       SootField[] fields = newAbs.getAccessPath().getFields();
-      AccessGraph accessPath = new AccessGraph(base, base.getType(), toListFieldWithStmt(fields));
+      AccessGraph accessPath = converter.toAccessGraph(base, fields);
       SootMethod method = boomerang.context.icfg.getMethodOf(src);
 
       AliasResults res = queryDart(accessPath, src, method, d1);
@@ -179,16 +185,14 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
     if (d1.equals(newAbs))
       return;
     SootField[] fields = newAbs.getAccessPath().getFields();
-    AccessGraph accessPath = new AccessGraph(base, base.getType(), toListFieldWithStmt(fields));
+    AccessGraph accessPath = converter.toAccessGraph(base, fields);
     Set<AccessGraph> withoutLastFields = accessPath.popLastField();
     SootMethod method = icfg.getMethodOf(src);
     for (AccessGraph withoutLastField : withoutLastFields) {
       AliasResults res = queryDart(withoutLastField, src, method, d1);
       Set<AccessGraph> accessPathOnly = res.mayAliasSet();
       if (lastField != null)
-        accessPathOnly =
-            AliasResults.appendField(accessPathOnly,
-            new WrappedSootField(lastField, lastField.getType(), null), boomerang.context);
+        accessPathOnly = converter.appendField(accessPathOnly, lastField, boomerang.context);
 
       for (AccessGraph ap : accessPathOnly) {
         Abstraction flowDroidAccessPath = toFlowDroidAccessPath(ap, src, newAbs);
@@ -200,12 +204,20 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
 
   private AliasResults queryDart(final AccessGraph ap, final Unit stmt, SootMethod method,
       final Abstraction d1) {
-    Query query = new Query(ap, stmt, method);
-    if (!alreadyQueried.containsKey(query)) {
-      Infoflow.aliasQueryCounter++;
-    } else {
-      return alreadyQueried.get(query);
-    }
+    return queryMemo.get(new Query(ap, stmt, method), new Callable<AliasResults>() {
+      @Override
+      public AliasResults call() {
+        return runDart(ap, stmt, d1);
+      }
+    });
+  }
+
+  /**
+   * Runs the query with both context requestors. The context counters and the CSV row belong to a
+   * single query, which the {@link BoomerangLock} held by the caller guarantees.
+   */
+  private AliasResults runDart(AccessGraph ap, Unit stmt, Abstraction d1) {
+    Infoflow.aliasQueryCounter.incrementAndGet();
     selectedContexts = 0;
     allPossibleContext = 0;
     moreContextRequest = 0;
@@ -225,6 +237,7 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
     // We trigger the query first with the FlowDroidContextRequestor (Following the incoming set of
     // FlowDroid)
     AliasResults res = new AliasResults();
+    boolean aborted = false;
     try {
       long before = System.currentTimeMillis();
       res = boomerang.findAliasAtStmt(ap, stmt, new FlowDroidContextRequestor(d1));
@@ -238,16 +251,24 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
       }
       ResultCache cache = boomerang.context.querycache;
       cache.clean();
-      BoomerangContext dartContext = new BoomerangContext(icfg, bwicfg);
-      dartContext.querycache = cache;
-      boomerang = new AliasFinder(dartContext);
+      aborted = true;
+      if (contextFactory == null) {
+        BoomerangContext dartContext = new BoomerangContext(icfg, bwicfg);
+        dartContext.querycache = cache;
+        boomerang = new AliasFinder(dartContext);
+      }
       if (e instanceof BoomerangTimeoutException) {
-        Infoflow.aliasQueryCounterTimeout++;
+        Infoflow.aliasQueryCounterTimeout.incrementAndGet();
+        queryMemo.countTimeout();
       } else
         e.printStackTrace();
     }
+    // A reused context drops the state of the query, but keeps its summaries
+    if (contextFactory != null)
+      boomerang = new AliasFinder(contextFactory.recycle(boomerang.context, aborted));
 
     // and now with the AllContextRequestor (Not following the incoming set of FlowDroid)
+    aborted = false;
     try {
       long before = System.currentTimeMillis();
       AliasResults res2 = boomerangAC.findAliasAtStmt(ap, stmt, new AllContextRequestor());
@@ -261,10 +282,15 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
       }
       ResultCache cache = boomerangAC.context.querycache;
       cache.clean();
-      BoomerangContext dartContext = new BoomerangContext(icfg, bwicfg);
-      dartContext.querycache = cache;
-      boomerangAC = new AliasFinder(dartContext);
+      aborted = true;
+      if (contextFactoryAC == null) {
+        BoomerangContext dartContext = new BoomerangContext(icfg, bwicfg);
+        dartContext.querycache = cache;
+        boomerangAC = new AliasFinder(dartContext);
+      }
     }
+    if (contextFactoryAC != null)
+      boomerangAC = new AliasFinder(contextFactoryAC.recycle(boomerangAC.context, aborted));
     long after = System.currentTimeMillis();
     try {
       // output differences
@@ -276,72 +302,23 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
       e.printStackTrace();
     }
 
-    Infoflow.aliasQueryTime += (after - boomerang.context.startTime);
-    alreadyQueried.put(query, res);
+    Infoflow.aliasQueryTime.addAndGet(after - boomerang.context.startTime);
     return res;
 
   }
 
   private Abstraction toFlowDroidAccessPath(AccessGraph ap, Stmt src, Abstraction newAbs) {
-    if (ap.getFieldCount() < 1) {
-      return newAbs.deriveNewAbstraction(new soot.jimple.infoflow.data.AccessPath(ap.getBase(),
-          newAbs.getAccessPath().isCutOffApproximation()), src);
-    }
-    WrappedSootField[] fields = ap.getRepresentative();
-    ArrayList<SootField> fdFields = new ArrayList<>();
-    ArrayList<Type> fdFieldType = new ArrayList<>();
-    int accessPathLength = Infoflow.getAccessPathLength();
-    for (int i = 0; i < Math.min(fields.length, accessPathLength); i++) {
-      WrappedSootField field = fields[i];
-      if (field.getField().equals(AliasFinder.ARRAY_FIELD)) {
-        if (!fdFieldType.isEmpty()) {
-          int last = fdFieldType.size() - 1;
-          Type type = fdFieldType.get(last);
-          Type buildArrayOrAddDimension = buildArrayOrAddDimension(type);
-          fdFieldType.remove(last);
-          fdFieldType.add(buildArrayOrAddDimension);
-        }
-      } else {
-        fdFields.add(field.getField());
-        fdFieldType.add(field.getField().getType());
-      }
-    }
-    Type[] fdFieldTypeArray = fdFieldType.toArray(new Type[] {});
-    SootField[] fdFieldArray = fdFields.toArray(new SootField[] {});
-
-    Value plainValue = ap.getBase();
-    Type baseType = null;
-    if (plainValue != null)
-      baseType = plainValue.getType();
-
-    if (plainValue == null && fdFields.isEmpty())
-      return null;
-    return newAbs.deriveNewAbstraction(new soot.jimple.infoflow.data.AccessPath(plainValue,
-        fdFieldArray, baseType, fdFieldTypeArray,
-        (newAbs.getAccessPath().isCutOffApproximation() || fields.length > accessPathLength)), src);
-  }
-
-  /**
-   * Builds a new array of the given type if it is a base type or increments the dimensions of the
-   * given array by 1 otherwise.
-   * 
-   * @param type The base type or incoming array
-   * @return The resulting array
-   */
-  public Type buildArrayOrAddDimension(Type type) {
-    if (type instanceof ArrayType) {
-      ArrayType array = (ArrayType) type;
-      return array.makeArrayType();
-    } else
-      return ArrayType.v(type, 1);
+    soot.jimple.infoflow.data.AccessPath path =
+        converter.toAccessPath(ap, newAbs.getAccessPath().isCutOffApproximation());
+    return path == null ? null : newAbs.deriveNewAbstraction(path, src);
   }
 
   @Override
   public void injectCallingContext(Abstraction d3, IInfoflowSolver fSolver, SootMethod callee,
       Unit callSite, Abstraction source, Abstraction d1) {
-    Pair<SootMethod, Abstraction> calleepair = new Pair<>(callee, d3);
-    Pair<Unit, Abstraction> callerpair = new Pair<>(callSite, d1);
-    incomingMap.put(calleepair, callerpair);
+    // Callers in ignored methods are never requested as contexts
+    if (!isIgnoredMethod(icfg.getMethodOf(callSite)))
+      incomingContexts.add(callee, d3, new FlowDroidContext(callSite, d1));
   }
 
   @Override
@@ -385,19 +362,7 @@ public class BoomerangAliasStrategyAC extends AbstractBulkAliasStrategy {
         selectedContexts += dartCallerContexts.size();
         return dartCallerContexts;
       }
-      Collection<Pair<Unit, Abstraction>> callerContexts =
-          incomingMap.get(new Pair<SootMethod, Abstraction>(methodOf, abstraction));
-      Set<Context> dartCallerContexts = new HashSet<>();
-
-
-
-      for (Pair<Unit, Abstraction> callerContext : callerContexts) {
-        if (isIgnoredMethod(icfg.getMethodOf(callerContext.getO1())))
-          continue;
-        FlowDroidContext newContext =
-            new FlowDroidContext(callerContext.getO1(), callerContext.getO2());
-        dartCallerContexts.add(newContext);
-      }
+      Set<Context> dartCallerContexts = incomingContexts.getCallerContexts(methodOf, abstraction);
       selectedContexts = dartCallerContexts.size();
       return dartCallerContexts;
     }
@@ -171,7 +171,7 @@ public class SBorDAAliasStrategy extends AbstractBulkAliasStrategy {
 
   private boolean isAliasedAtStmt(final AccessPath ap, final Value val, final SootMethod m1) {
     if (alreadyQueried.add(new Key(ap.getPlainValue(), val, m1))) {
-      Infoflow.aliasQueryCounter++;
+      Infoflow.aliasQueryCounter.incrementAndGet();
     }
     if (ap.isLocal() && val instanceof Local) {
       Infoflow.SBandDACounter++;
@@ -188,9 +188,9 @@ public class SBorDAAliasStrategy extends AbstractBulkAliasStrategy {
         res = YanMayAlias.v().mayAlias(ap.getPlainValue(), null, m1, (Local) val, null, m1);
       }
       if (MayAliasAnalysis.queryCrashed)
-        Infoflow.aliasQueryCounterTimeout++;
+        Infoflow.aliasQueryCounterTimeout.incrementAndGet();
       long after = System.currentTimeMillis();
-      Infoflow.aliasQueryTime += (after - before);
+      Infoflow.aliasQueryTime.addAndGet(after - before);
       if (!MayAliasAnalysis.queryCrashed)
         return res;
     }
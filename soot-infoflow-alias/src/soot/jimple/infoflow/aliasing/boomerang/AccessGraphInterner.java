@@ -0,0 +1,107 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.backward.BackwardEdge;
+import boomerang.cache.AliasResults;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.PathEdge;
+import heros.solver.Pair;
+import soot.Unit;
+
+/**
+ * Hash-conses {@link AccessGraph}s. Equal access graphs passed to {@link #intern(AccessGraph)}
+ * come back as the same instance, so long-lived structures (summaries, query results) hold every
+ * distinct fact only once and may compare facts by identity. The interner only keeps weak
+ * references, a canonical instance is dropped once nothing else refers to it.
+ *
+ * Access graphs are created inside the Boomerang solver, therefore interning happens where facts
+ * leave it: when summaries are stored and when results are handed to a client.
+ */
+public class AccessGraphInterner {
+
+  private final Interner<AccessGraph> interner = Interners.newWeakInterner();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong duplicates = new AtomicLong();
+
+  public AccessGraph intern(AccessGraph g) {
+    if (g == null)
+      return null;
+    AccessGraph canonical = interner.intern(g);
+    requests.incrementAndGet();
+    if (canonical != g)
+      duplicates.incrementAndGet();
+    return canonical;
+  }
+
+  public Pair<Unit, AccessGraph> intern(Pair<Unit, AccessGraph> node) {
+    AccessGraph canonical = intern(node.getO2());
+    if (canonical == node.getO2())
+      return node;
+    return new Pair<Unit, AccessGraph>(node.getO1(), canonical);
+  }
+
+  /**
+   * @return An edge of the same class and equal to the given one whose facts are canonical. Edges
+   *         of classes other than {@link PathEdge} and {@link BackwardEdge} are returned as they
+   *         are, since they cannot be rebuilt.
+   */
+  public IPathEdge<Unit, AccessGraph> intern(IPathEdge<Unit, AccessGraph> edge) {
+    Class<?> c = edge.getClass();
+    if (c != PathEdge.class && c != BackwardEdge.class)
+      return edge;
+    AccessGraph source = intern(edge.factAtSource());
+    AccessGraph target = intern(edge.factAtTarget());
+    if (source == edge.factAtSource() && target == edge.factAtTarget())
+      return edge;
+    if (c == BackwardEdge.class)
+      return new BackwardEdge(edge.getStart(), source, edge.getTarget(), target);
+    return new PathEdge<Unit, AccessGraph>(edge.getStart(), source, edge.getTarget(), target);
+  }
+
+  public Set<AccessGraph> internAll(Collection<AccessGraph> graphs) {
+    Set<AccessGraph> res = new HashSet<>();
+    for (AccessGraph g : graphs)
+      res.add(intern(g));
+    return res;
+  }
+
+  /**
+   * @return Alias results equal to the given ones whose access graphs are canonical.
+   */
+  public AliasResults intern(AliasResults results) {
+    AliasResults res =
+        PartialAliasResults.isComplete(results) ? new AliasResults() : new PartialAliasResults();
+    for (Entry<Pair<Unit, AccessGraph>, AccessGraph> e : results.entries())
+      res.put(intern(e.getKey()), intern(e.getValue()));
+    return res;
+  }
+
+  /**
+   * @return The number of access graphs passed to this interner.
+   */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * @return The number of access graphs that were replaced by an already known equal instance.
+   */
+  public long getDuplicateCount() {
+    return duplicates.get();
+  }
+
+  @Override
+  public String toString() {
+    return "AccessGraphInterner[requests=" + requests.get() + ", duplicates=" + duplicates.get()
+        + "]";
+  }
+}
@@ -0,0 +1,201 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.accesspath.WrappedSootField;
+import boomerang.cache.AliasResults;
+import heros.solver.Pair;
+import soot.ArrayType;
+import soot.Local;
+import soot.SootField;
+import soot.Type;
+import soot.Value;
+import soot.jimple.infoflow.data.AccessPath;
+
+/**
+ * Translates between FlowDroid's {@link AccessPath}s and Boomerang's {@link AccessGraph}s. Both
+ * are immutable, so every translation is memoized: an access path with the same base and fields
+ * always maps to the same canonical access graph and vice versa, and the fields appended to an
+ * access graph are only appended once. The memos are bounded, the least recently used entries are
+ * evicted and translated again when they are requested once more.
+ *
+ * Access paths are cut to the access path length the converter was created with.
+ */
+public class AccessPathConverter {
+
+  /**
+   * The default maximal number of translations kept per direction.
+   */
+  public static final long DEFAULT_MAXIMUM_SIZE = 100000;
+
+  private final AccessGraphInterner interner;
+  private final int accessPathLength;
+  private final Cache<Pair<Local, FieldSequence>, AccessGraph> toGraph;
+  private final Cache<Pair<AccessGraph, FieldSequence>, Optional<AccessGraph>> appended;
+  private final Cache<Pair<AccessGraph, Boolean>, Optional<AccessPath>> toPath;
+
+  public AccessPathConverter(AccessGraphInterner interner, int accessPathLength) {
+    this(interner, accessPathLength, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * @param interner Makes the created access graphs canonical.
+   * @param accessPathLength The maximal number of fields of a created access path.
+   * @param maximumSize The maximal number of translations kept per direction.
+   */
+  public AccessPathConverter(AccessGraphInterner interner, int accessPathLength,
+      long maximumSize) {
+    this.interner = interner;
+    this.accessPathLength = accessPathLength;
+    this.toGraph = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    this.appended = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    this.toPath = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  /**
+   * @return The access graph of the given local and fields, typed with the type of the local.
+   */
+  public AccessGraph toAccessGraph(final Local base, SootField[] fields) {
+    final FieldSequence sequence = FieldSequence.of(fields);
+    return get(toGraph, new Pair<>(base, sequence), new Callable<AccessGraph>() {
+      @Override
+      public AccessGraph call() {
+        if (sequence.isEmpty())
+          return interner.intern(new AccessGraph(base, base.getType()));
+        return interner.intern(new AccessGraph(base, base.getType(), sequence.toWrappedFields()));
+      }
+    });
+  }
+
+  /**
+   * @return The access graph of the given access path, or null if it has no local base.
+   */
+  public AccessGraph toAccessGraph(AccessPath ap) {
+    if (ap.getPlainValue() == null)
+      return null;
+    return toAccessGraph(ap.getPlainValue(), ap.getFields());
+  }
+
+  /**
+   * @return The graphs with the given fields appended, the ones the fields cannot be appended to
+   *         are dropped like in {@link AliasResults#appendFields}.
+   */
+  public Set<AccessGraph> appendFields(Collection<AccessGraph> graphs, SootField[] fields,
+      BoomerangContext context) {
+    FieldSequence sequence = FieldSequence.of(fields);
+    if (sequence.isEmpty())
+      return new HashSet<>(graphs);
+    Set<AccessGraph> res = new HashSet<>();
+    for (AccessGraph g : graphs) {
+      AccessGraph appendedGraph = appendFields(g, sequence);
+      // Validity depends on the context and is therefore not memoized
+      if (appendedGraph != null && context.isValidAccessPath(appendedGraph))
+        res.add(appendedGraph);
+    }
+    return res;
+  }
+
+  public Set<AccessGraph> appendField(Collection<AccessGraph> graphs, SootField field,
+      BoomerangContext context) {
+    return appendFields(graphs, new SootField[] {field}, context);
+  }
+
+  private AccessGraph appendFields(final AccessGraph g, final FieldSequence sequence) {
+    return get(appended, new Pair<>(g, sequence), new Callable<Optional<AccessGraph>>() {
+      @Override
+      public Optional<AccessGraph> call() {
+        WrappedSootField[] fields = sequence.toWrappedFields();
+        if (!AliasResults.canAppend(g, fields[0]))
+          return Optional.absent();
+        return Optional.of(interner.intern(g.appendFields(fields)));
+      }
+    }).orNull();
+  }
+
+  /**
+   * Maps a Boomerang access graph to a FlowDroid access path. Array fields are not tracked as
+   * fields by FlowDroid, they add a dimension to the type of the preceding field instead.
+   *
+   * @param taintSubFields Whether the access path taints the fields beyond its last one.
+   * @return The access path, or null if the graph has neither a base nor fields FlowDroid tracks.
+   */
+  public AccessPath toAccessPath(final AccessGraph g, final boolean taintSubFields) {
+    return get(toPath, new Pair<>(g, taintSubFields), new Callable<Optional<AccessPath>>() {
+      @Override
+      public Optional<AccessPath> call() {
+        return Optional.fromNullable(convert(g, taintSubFields));
+      }
+    }).orNull();
+  }
+
+  private AccessPath convert(AccessGraph g, boolean taintSubFields) {
+    if (g.getFieldCount() < 1)
+      return new AccessPath(g.getBase(), taintSubFields);
+    WrappedSootField[] fields = g.getRepresentative();
+    List<SootField> fdFields = new ArrayList<>();
+    List<Type> fdFieldTypes = new ArrayList<>();
+    for (int i = 0; i < Math.min(fields.length, accessPathLength); i++) {
+      SootField field = fields[i].getField();
+      if (field.equals(AliasFinder.ARRAY_FIELD)) {
+        if (!fdFieldTypes.isEmpty()) {
+          int last = fdFieldTypes.size() - 1;
+          fdFieldTypes.set(last, buildArrayOrAddDimension(fdFieldTypes.get(last)));
+        }
+      } else {
+        fdFields.add(field);
+        fdFieldTypes.add(field.getType());
+      }
+    }
+    Value plainValue = g.getBase();
+    if (plainValue == null && fdFields.isEmpty())
+      return null;
+    Type baseType = plainValue == null ? null : plainValue.getType();
+    return new AccessPath(plainValue, fdFields.toArray(new SootField[fdFields.size()]), baseType,
+        fdFieldTypes.toArray(new Type[fdFieldTypes.size()]),
+        taintSubFields || fields.length > accessPathLength);
+  }
+
+  /**
+   * Builds a new array of the given type if it is a base type or increments the dimensions of the
+   * given array by 1 otherwise.
+   */
+  private static Type buildArrayOrAddDimension(Type type) {
+    if (type instanceof ArrayType)
+      return ((ArrayType) type).makeArrayType();
+    return ArrayType.v(type, 1);
+  }
+
+  private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> computation) {
+    try {
+      return cache.get(key, computation);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new RuntimeException("Conversion of " + key + " failed", e.getCause());
+    }
+  }
+
+  public void clear() {
+    toGraph.invalidateAll();
+    appended.invalidateAll();
+    toPath.invalidateAll();
+  }
+
+  @Override
+  public String toString() {
+    return "AccessPathConverter[toGraph=" + toGraph.size() + ", appended=" + appended.size()
+        + ", toPath=" + toPath.size() + "]";
+  }
+}
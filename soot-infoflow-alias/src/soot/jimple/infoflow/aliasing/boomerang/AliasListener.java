@@ -0,0 +1,19 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.accesspath.AccessGraph;
+import heros.solver.Pair;
+import soot.Unit;
+
+/**
+ * Receives the allocation sites of a query while it is solved, see {@link StreamingAliasFinder}.
+ */
+public interface AliasListener {
+
+  /**
+   * Called once for every allocation site of the query, i.e. for every key of its
+   * {@link boomerang.cache.AliasResults}.
+   *
+   * @return Whether the query should continue. Returning false stops it.
+   */
+  boolean onAllocationSite(Pair<Unit, AccessGraph> allocationSite);
+}
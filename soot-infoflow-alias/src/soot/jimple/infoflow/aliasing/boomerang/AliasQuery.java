@@ -0,0 +1,81 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.context.IContextRequester;
+import boomerang.context.NoContextRequester;
+import soot.Unit;
+
+/**
+ * A single alias query: the access graph to find aliases for, the statement at which the aliases
+ * are requested and the context requester that drives the context resolution.
+ */
+public class AliasQuery {
+  private final AccessGraph accessGraph;
+  private final Unit stmt;
+  private final IContextRequester contextRequester;
+
+  public AliasQuery(AccessGraph accessGraph, Unit stmt) {
+    this(accessGraph, stmt, new NoContextRequester());
+  }
+
+  public AliasQuery(AccessGraph accessGraph, Unit stmt, IContextRequester contextRequester) {
+    this.accessGraph = accessGraph;
+    this.stmt = stmt;
+    this.contextRequester = contextRequester;
+  }
+
+  public AccessGraph getAccessGraph() {
+    return accessGraph;
+  }
+
+  public Unit getStmt() {
+    return stmt;
+  }
+
+  public IContextRequester getContextRequester() {
+    return contextRequester;
+  }
+
+  @Override
+  public String toString() {
+    return "AliasQuery[" + accessGraph + "@" + stmt + "]";
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((accessGraph == null) ? 0 : accessGraph.hashCode());
+    result = prime * result + ((stmt == null) ? 0 : stmt.hashCode());
+    result = prime * result + ((contextRequester == null) ? 0 : contextRequester.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    AliasQuery other = (AliasQuery) obj;
+    if (accessGraph == null) {
+      if (other.accessGraph != null)
+        return false;
+    } else if (!accessGraph.equals(other.accessGraph))
+      return false;
+    if (stmt == null) {
+      if (other.stmt != null)
+        return false;
+    } else if (!stmt.equals(other.stmt))
+      return false;
+    if (contextRequester == null) {
+      if (other.contextRequester != null)
+        return false;
+    } else if (!contextRequester.equals(other.contextRequester))
+      return false;
+    return true;
+  }
+
+}
@@ -0,0 +1,121 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import boomerang.cache.AliasResults;
+import boomerang.cache.Query;
+
+/**
+ * The results of the alias queries of one client, shared by all its threads. A query that is
+ * requested again while another thread computes it is not computed twice, the requesting thread
+ * waits for the running computation instead. The memo holds a bounded number of results, the least
+ * recently used ones are evicted and computed again when they are requested once more.
+ *
+ * Besides the cache statistics the memo counts the computed queries, the ones that ran out of
+ * budget and the time spent computing them.
+ */
+public class AliasQueryMemo {
+
+  /**
+   * The default maximal number of results kept in the memo.
+   */
+  public static final long DEFAULT_MAXIMUM_SIZE = 100000;
+
+  private final Cache<Query, AliasResults> cache;
+  private final AtomicLong queries = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong queryTime = new AtomicLong();
+
+  public AliasQueryMemo() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * @param maximumSize The maximal number of results kept in the memo.
+   */
+  public AliasQueryMemo(long maximumSize) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * @return The memoized results of the query, or the results of the given computation, which is
+   *         only run if neither the memo holds the query nor another thread computes it.
+   */
+  public AliasResults get(Query query, final Callable<AliasResults> computation) {
+    try {
+      return cache.get(query, new Callable<AliasResults>() {
+        @Override
+        public AliasResults call() throws Exception {
+          queries.incrementAndGet();
+          long before = System.currentTimeMillis();
+          try {
+            return computation.call();
+          } finally {
+            queryTime.addAndGet(System.currentTimeMillis() - before);
+          }
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new RuntimeException("Alias query " + query + " failed", e.getCause());
+    }
+  }
+
+  /**
+   * @return The memoized results of the query, or null if the memo does not hold them.
+   */
+  public AliasResults getIfPresent(Query query) {
+    return cache.getIfPresent(query);
+  }
+
+  /**
+   * Records that a computed query ran out of budget.
+   */
+  public void countTimeout() {
+    timeouts.incrementAndGet();
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return The number of queries computed, including the ones computed again after eviction.
+   */
+  public long getQueryCount() {
+    return queries.get();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.get();
+  }
+
+  /**
+   * @return The time spent computing queries in milliseconds, summed over all threads.
+   */
+  public long getQueryTime() {
+    return queryTime.get();
+  }
+
+  @Override
+  public String toString() {
+    CacheStats stats = cache.stats();
+    return "AliasQueryMemo[entries=" + cache.size() + ", queries=" + queries + ", timeouts="
+        + timeouts + ", time=" + queryTime + "ms, hits=" + stats.hitCount() + ", evictions="
+        + stats.evictionCount() + "]";
+  }
+}
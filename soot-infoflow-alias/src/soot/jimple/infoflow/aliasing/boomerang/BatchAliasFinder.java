@@ -0,0 +1,159 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangTimeoutException;
+import boomerang.cache.AliasResults;
+import boomerang.cache.ResultCache;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Answers batches of alias queries on a single worker thread, so a client can submit a batch and
+ * continue until it needs the answers. All queries run on one {@link AliasFinder}: they share its
+ * {@link ResultCache} and, if the context factory is configured to share them, the method
+ * summaries of earlier queries. Only the summaries of queries that completed are shared, see
+ * {@link BufferedSummaries}.
+ *
+ * Boomerang does not support concurrent queries, see {@link BoomerangLock}, so more workers would
+ * only wait for the lock and split the result cache between them.
+ */
+public class BatchAliasFinder {
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final BoomerangContextFactory contextFactory;
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(new WorkerThreadFactory());
+  /** Guarded by {@link BoomerangLock#LOCK}. */
+  private AliasFinder finder;
+  private final AtomicLong queryCounter = new AtomicLong();
+  private final AtomicLong timeoutCounter = new AtomicLong();
+
+  public BatchAliasFinder(IInfoflowCFG icfg) {
+    this(sharingSummaries(BoomerangContextFactory.threadSafe(icfg)));
+  }
+
+  private static BoomerangContextFactory sharingSummaries(BoomerangContextFactory factory) {
+    factory.setShareSummaries(true);
+    return factory;
+  }
+
+  /**
+   * @param contextFactory Creates the context of the queries. Its CFGs must be safe to share
+   *        between threads, see {@link BoomerangContextFactory#threadSafe(IInfoflowCFG)}.
+   */
+  public BatchAliasFinder(BoomerangContextFactory contextFactory) {
+    this.contextFactory = contextFactory;
+    this.finder = contextFactory.createAliasFinder();
+  }
+
+  /**
+   * Computes the aliases of all given queries on the worker. Duplicate queries are solved once.
+   * The map of the returned future iterates in the order of the given queries. A query that
+   * exceeds the budget of the context factory is answered with the {@link PartialAliasResults}
+   * found so far.
+   */
+  public Future<Map<AliasQuery, AliasResults>> submit(Collection<AliasQuery> queries) {
+    final Set<AliasQuery> batch = new LinkedHashSet<>(queries);
+    return executor.submit(new Callable<Map<AliasQuery, AliasResults>>() {
+      @Override
+      public Map<AliasQuery, AliasResults> call() {
+        Map<AliasQuery, AliasResults> results = new LinkedHashMap<>();
+        for (AliasQuery q : batch)
+          results.put(q, solve(q));
+        return results;
+      }
+    });
+  }
+
+  /**
+   * Computes the aliases of all given queries and waits for them, see {@link #submit(Collection)}.
+   */
+  public Map<AliasQuery, AliasResults> findAliases(Collection<AliasQuery> queries) {
+    Future<Map<AliasQuery, AliasResults>> future = submit(queries);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw new RuntimeException("Interrupted while waiting for alias queries", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Alias queries failed", e.getCause());
+    }
+  }
+
+  /**
+   * Solves a single query on the calling thread.
+   */
+  public AliasResults findAliases(AliasQuery query) {
+    return solve(query);
+  }
+
+  private AliasResults solve(AliasQuery q) {
+    synchronized (BoomerangLock.LOCK) {
+      queryCounter.incrementAndGet();
+      finder.context.startTime = System.currentTimeMillis();
+      boolean aborted = true;
+      try {
+        AliasResults res =
+            finder.findAliasAtStmt(q.getAccessGraph(), q.getStmt(), q.getContextRequester());
+        aborted = false;
+        return res;
+      } catch (BoomerangTimeoutException e) {
+        timeoutCounter.incrementAndGet();
+        return BudgetedAliasFinder.terminate(finder.context, q);
+      } finally {
+        // Path edges are per query, the query cache and shared summaries outlive it. Only a
+        // completed query publishes its summaries.
+        finder = new AliasFinder(contextFactory.recycle(finder.context, aborted));
+      }
+    }
+  }
+
+  public long getQueryCount() {
+    return queryCounter.get();
+  }
+
+  public long getTimeoutCount() {
+    return timeoutCounter.get();
+  }
+
+  public BoomerangContextFactory getContextFactory() {
+    return contextFactory;
+  }
+
+  /**
+   * Stops the worker thread. Batches that were already submitted are completed.
+   */
+  public void shutdown() {
+    executor.shutdown();
+    logger.info("Batch alias finder answered {} queries, {} timed out", queryCounter.get(),
+        timeoutCounter.get());
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "Boomerang batch worker " + threadCounter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
@@ -0,0 +1,380 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.cache.ResultCache;
+import boomerang.ifdssolver.ISummaries;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Creates {@link BoomerangContext}s that share the same forward and backward interprocedural CFG
+ * and the same configuration. The CFGs are built once, every context only carries the per-query
+ * state (path edges, summaries, sub queries).
+ *
+ * With {@link #setShareSummaries(boolean)} all contexts of the factory read and write the same
+ * {@link ConcurrentSummaries}, so a query reuses the method summaries computed by earlier queries.
+ * {@link #setSummaryCache(long)} does the same with a bounded {@link SummaryCache}. A query only
+ * publishes its summaries to the shared store when it completed, see {@link BufferedSummaries}
+ * and {@link #recycle(BoomerangContext, boolean)}.
+ *
+ * With {@link #setLibrarySummaries(LibrarySummaries)} the contexts step over the summarised
+ * library methods, see {@link SummarizedDataFlow}.
+ *
+ * With {@link #setReuseContexts(boolean)} a client keeps one context for all its queries and
+ * {@link #recycle(BoomerangContext, boolean)} only drops the state of the last query.
+ */
+public class BoomerangContextFactory {
+
+  /**
+   * The bound of the summary cache a factory that reuses its contexts installs if no summaries are
+   * shared yet, in end edges per direction.
+   */
+  public static final long DEFAULT_SUMMARY_CACHE_WEIGHT = 1000000;
+
+  private final IInfoflowCFG icfg;
+  private final IInfoflowCFG bwicfg;
+  private long budgetInMilliSeconds = 10000;
+  private int pathEdgeStripes = 0;
+  private boolean packedPathEdges = false;
+  private boolean trackVisitedMethods = false;
+  private boolean reuseContexts = false;
+  private QueryBudget queryBudget;
+  private QueryMetricsLog metricsLog;
+  private LibrarySummaries librarySummaries;
+  private ISummaries<Unit, SootMethod, AccessGraph> fwSummaries;
+  private ISummaries<Unit, SootMethod, AccessGraph> bwSummaries;
+  private final AccessGraphInterner interner = new AccessGraphInterner();
+  private TransitiveFieldPreanalysis preanalysis;
+
+  public BoomerangContextFactory(IInfoflowCFG icfg) {
+    this(icfg, new BackwardsInfoflowCFG(icfg));
+  }
+
+  public BoomerangContextFactory(IInfoflowCFG icfg, IInfoflowCFG bwicfg) {
+    this.icfg = icfg;
+    this.bwicfg = bwicfg;
+  }
+
+  /**
+   * Creates a factory whose CFGs may be used from several threads.
+   */
+  public static BoomerangContextFactory threadSafe(IInfoflowCFG icfg) {
+    return new BoomerangContextFactory(new ThreadSafeInfoflowCFG(icfg),
+        new ThreadSafeInfoflowCFG(new BackwardsInfoflowCFG(icfg)));
+  }
+
+  /**
+   * Creates a factory whose CFGs answer the field pre-analysis queries of Boomerang from the given
+   * {@link TransitiveFieldPreanalysis}, shared by the forward and the backward CFG.
+   */
+  public static BoomerangContextFactory withPreanalysis(IInfoflowCFG icfg,
+      TransitiveFieldPreanalysis preanalysis) {
+    BoomerangContextFactory factory =
+        new BoomerangContextFactory(new FieldPreanalysisInfoflowCFG(icfg, preanalysis),
+            new FieldPreanalysisInfoflowCFG(new BackwardsInfoflowCFG(icfg), preanalysis));
+    factory.preanalysis = preanalysis;
+    return factory;
+  }
+
+  /**
+   * @return The field pre-analysis the CFGs of this factory answer from, or null if they use the
+   *         one of Boomerang, which cannot be invalidated.
+   */
+  public TransitiveFieldPreanalysis getPreanalysis() {
+    return preanalysis;
+  }
+
+  public BoomerangContext createContext() {
+    BoomerangContext context;
+    if (fwSummaries != null)
+      context = new ManagedBoomerangContext(icfg, bwicfg,
+          new BufferedSummaries(icfg, fwSummaries), new BufferedSummaries(icfg, bwSummaries),
+          pathEdgeStripes, packedPathEdges || metricsLog != null, trackVisitedMethods);
+    else if (pathEdgeStripes > 0 || packedPathEdges || trackVisitedMethods || queryBudget != null
+        || metricsLog != null)
+      context = new ManagedBoomerangContext(icfg, bwicfg, new ConcurrentSummaries(icfg, interner),
+          new ConcurrentSummaries(icfg, interner), pathEdgeStripes,
+          packedPathEdges || metricsLog != null, trackVisitedMethods);
+    else
+      context = new BoomerangContext(icfg, bwicfg);
+    context.budgetInMilliSeconds = budgetInMilliSeconds;
+    if (queryBudget != null)
+      ((ManagedBoomerangContext) context).setQueryBudget(queryBudget);
+    if (metricsLog != null)
+      ((ManagedBoomerangContext) context).setMetricsCollector(new MetricsCollector(metricsLog));
+    if (librarySummaries != null) {
+      context.forwardMockHandler =
+          new SummarizedDataFlow(librarySummaries, icfg, context.forwardMockHandler, true);
+      context.backwardMockHandler =
+          new SummarizedDataFlow(librarySummaries, bwicfg, context.backwardMockHandler, false);
+    }
+    return context;
+  }
+
+  /**
+   * Creates a fresh context that keeps using the given query cache.
+   */
+  public BoomerangContext createContext(ResultCache querycache) {
+    BoomerangContext context = createContext();
+    context.querycache = querycache;
+    return context;
+  }
+
+  /**
+   * Finishes the last query of a context of this factory and prepares the context for the next
+   * one. The summaries the query buffered are published to the shared summaries, unless the query
+   * was aborted, since they may lack end edges then. If the factory reuses its contexts, the query
+   * state of the context is reset and the context is returned. Otherwise a fresh context that
+   * keeps using the query cache is returned.
+   *
+   * @param aborted Whether the last query of the context ran out of budget or failed.
+   */
+  public BoomerangContext recycle(BoomerangContext context, boolean aborted) {
+    ManagedBoomerangContext.finishQuery(context, aborted);
+    if (!reuseContexts || !(context instanceof ManagedBoomerangContext))
+      return createContext(context.querycache);
+    ManagedBoomerangContext managed = (ManagedBoomerangContext) context;
+    managed.resetQueryState();
+    return managed;
+  }
+
+  public AliasFinder createAliasFinder() {
+    return new AliasFinder(createContext());
+  }
+
+  public IInfoflowCFG getICFG() {
+    return icfg;
+  }
+
+  public IInfoflowCFG getBackwardICFG() {
+    return bwicfg;
+  }
+
+  /**
+   * Lets all contexts created from now on share one forward and one backward summary store.
+   */
+  public void setShareSummaries(boolean share) {
+    if (share && fwSummaries == null) {
+      fwSummaries = new ConcurrentSummaries(icfg, interner);
+      bwSummaries = new ConcurrentSummaries(icfg, interner);
+    } else if (!share) {
+      fwSummaries = null;
+      bwSummaries = null;
+    }
+  }
+
+  public boolean isShareSummaries() {
+    return fwSummaries != null;
+  }
+
+  /**
+   * Lets all contexts created from now on share a forward and a backward {@link SummaryCache},
+   * each bounded to the given number of end edges.
+   */
+  public void setSummaryCache(long maximumWeight) {
+    fwSummaries = new SummaryCache(icfg, maximumWeight, interner);
+    bwSummaries = new SummaryCache(icfg, maximumWeight, interner);
+  }
+
+  /**
+   * Lets all contexts created from now on share summaries that are persisted in the given
+   * directory, see {@link PersistentSummaries}. Summaries of earlier runs found there are used.
+   */
+  public void setPersistentSummaries(File directory) throws IOException {
+    directory.mkdirs();
+    fwSummaries = new PersistentSummaries(new ConcurrentSummaries(icfg, interner), icfg,
+        new File(directory, "forward.summaries"));
+    bwSummaries = new PersistentSummaries(new ConcurrentSummaries(icfg, interner), icfg,
+        new File(directory, "backward.summaries"));
+  }
+
+  /**
+   * Saves the shared summaries if they are persistent, does nothing otherwise.
+   */
+  public void savePersistentSummaries() throws IOException {
+    if (fwSummaries instanceof PersistentSummaries)
+      ((PersistentSummaries) fwSummaries).save();
+    if (bwSummaries instanceof PersistentSummaries)
+      ((PersistentSummaries) bwSummaries).save();
+  }
+
+  /**
+   * @return The forward summaries shared by all contexts, or null if every context keeps its own.
+   */
+  public ISummaries<Unit, SootMethod, AccessGraph> getForwardSummaries() {
+    return fwSummaries;
+  }
+
+  /**
+   * @return The backward summaries shared by all contexts, or null if every context keeps its own.
+   */
+  public ISummaries<Unit, SootMethod, AccessGraph> getBackwardSummaries() {
+    return bwSummaries;
+  }
+
+  /**
+   * @param pathEdgeStripes Number of lock stripes of the path edge stores of new contexts. 0 (the
+   *        default) keeps the unsynchronized stores of Boomerang.
+   */
+  public void setPathEdgeStripes(int pathEdgeStripes) {
+    this.pathEdgeStripes = pathEdgeStripes;
+  }
+
+  /**
+   * @return The interner that canonicalizes the access graphs of the shared summaries. Clients
+   *         should use it for the access graphs they keep beyond a single query.
+   */
+  public AccessGraphInterner getInterner() {
+    return interner;
+  }
+
+  /**
+   * @param packedPathEdges Whether new contexts index their processed path edges in packed form,
+   *        see {@link PackedPathEdgeStore}. The index is kept in addition to the regular path
+   *        edges, so it speeds up the processed check at the cost of memory.
+   */
+  public void setPackedPathEdges(boolean packedPathEdges) {
+    this.packedPathEdges = packedPathEdges;
+  }
+
+  /**
+   * @param trackVisitedMethods Whether new contexts record the methods their queries visit, see
+   *        {@link ManagedBoomerangContext#getVisitedMethods()}.
+   */
+  public void setTrackVisitedMethods(boolean trackVisitedMethods) {
+    this.trackVisitedMethods = trackVisitedMethods;
+  }
+
+  /**
+   * Discards everything the contexts of this factory share that may be stale after the bodies of
+   * the given methods changed. The CFGs rebuild the unit owners of the methods, the
+   * {@link TransitiveFieldPreanalysis} forgets the facts of the methods and all transitive facts,
+   * and the shared summaries of the methods and of all their transitive callers are removed, since
+   * a summary of a caller includes the effect of its callees. The bodies must already be prepared,
+   * e.g. by the {@code PreparationTransformer}, before the next query runs.
+   *
+   * The field pre-analysis of Boomerang's {@code InfoflowCFG} cannot be invalidated, so a factory
+   * without a {@link TransitiveFieldPreanalysis} may still answer field queries from the old
+   * bodies.
+   *
+   * @return The changed methods together with their transitive callers.
+   */
+  public Set<SootMethod> invalidate(Collection<SootMethod> changedMethods) {
+    for (SootMethod m : changedMethods) {
+      icfg.notifyMethodChanged(m);
+      bwicfg.notifyMethodChanged(m);
+      if (preanalysis != null)
+        preanalysis.invalidate(m);
+    }
+    Set<SootMethod> affected = transitiveCallers(changedMethods);
+    invalidate(fwSummaries, affected);
+    invalidate(bwSummaries, affected);
+    return affected;
+  }
+
+  private void invalidate(ISummaries<Unit, SootMethod, AccessGraph> summaries,
+      Set<SootMethod> methods) {
+    if (summaries instanceof InvalidatableSummaries)
+      ((InvalidatableSummaries) summaries).invalidate(methods);
+    else if (summaries != null)
+      summaries.clear();
+  }
+
+  private Set<SootMethod> transitiveCallers(Collection<SootMethod> methods) {
+    Set<SootMethod> res = new HashSet<>(methods);
+    LinkedList<SootMethod> worklist = new LinkedList<>(methods);
+    while (!worklist.isEmpty()) {
+      SootMethod m = worklist.poll();
+      for (Unit callSite : icfg.getCallersOf(m)) {
+        SootMethod caller = icfg.getMethodOf(callSite);
+        if (caller != null && res.add(caller))
+          worklist.add(caller);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Discards the shared summaries of the given methods, but not of their callers. Unlike
+   * {@link #invalidate(Collection)} the bodies of the methods are considered unchanged.
+   */
+  public void invalidateSummaries(Collection<SootMethod> methods) {
+    Set<SootMethod> invalid = new HashSet<>(methods);
+    invalidate(fwSummaries, invalid);
+    invalidate(bwSummaries, invalid);
+  }
+
+  /**
+   * @param reuseContexts Whether clients keep their contexts across queries, see
+   *        {@link #recycle(BoomerangContext, boolean)}. Unless summaries are shared already,
+   *        reusing contexts installs a {@link SummaryCache} bounded to
+   *        {@link #DEFAULT_SUMMARY_CACHE_WEIGHT}, so the retained summaries cannot grow without
+   *        limit.
+   */
+  public void setReuseContexts(boolean reuseContexts) {
+    this.reuseContexts = reuseContexts;
+    if (!reuseContexts)
+      return;
+    if (fwSummaries == null)
+      setSummaryCache(DEFAULT_SUMMARY_CACHE_WEIGHT);
+  }
+
+  public boolean isReuseContexts() {
+    return reuseContexts;
+  }
+
+  /**
+   * @param queryBudget The budget of every query of new contexts, which replaces the wall-clock
+   *        budget. Null to use the wall-clock budget.
+   */
+  public void setQueryBudget(QueryBudget queryBudget) {
+    this.queryBudget = queryBudget;
+  }
+
+  public QueryBudget getQueryBudget() {
+    return queryBudget;
+  }
+
+  /**
+   * @param metricsLog Receives the metrics of the sampled queries of all new contexts, or null to
+   *        not measure them.
+   */
+  public void setMetricsLog(QueryMetricsLog metricsLog) {
+    this.metricsLog = metricsLog;
+  }
+
+  public QueryMetricsLog getMetricsLog() {
+    return metricsLog;
+  }
+
+  /**
+   * @param librarySummaries Summaries of library methods new contexts step over instead of
+   *        analysing them, or null to analyse all methods.
+   */
+  public void setLibrarySummaries(LibrarySummaries librarySummaries) {
+    this.librarySummaries = librarySummaries;
+  }
+
+  public LibrarySummaries getLibrarySummaries() {
+    return librarySummaries;
+  }
+
+  public long getBudgetInMilliSeconds() {
+    return budgetInMilliSeconds;
+  }
+
+  public void setBudgetInMilliSeconds(long budgetInMilliSeconds) {
+    this.budgetInMilliSeconds = budgetInMilliSeconds;
+  }
+}
@@ -0,0 +1,18 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+/**
+ * The lock all Boomerang queries of this package run under. Boomerang numbers the fields of its
+ * access graphs in a static, unsynchronized list of {@code FieldGraph}, and every access graph
+ * fills unsynchronized caches when its fields are read. Concurrent queries, or code that builds or
+ * reads access graphs while a query runs, therefore corrupt each other and are not supported.
+ *
+ * The lock is reentrant, a query may run nested queries. Code outside of this package that
+ * creates or reads access graphs on several threads must hold it as well.
+ */
+public final class BoomerangLock {
+
+  public static final Object LOCK = new Object();
+
+  private BoomerangLock() {
+  }
+}
@@ -0,0 +1,60 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangContext;
+import boomerang.BoomerangTimeoutException;
+import boomerang.cache.AliasResults;
+
+/**
+ * Runs queries that may exceed their budget and answers them with the aliases found so far
+ * instead of nothing. Such results are {@link PartialAliasResults}. Partial results can only be
+ * recovered from a {@link ManagedBoomerangContext}, other contexts yield empty partial results.
+ * With a {@link QueryBudget} the results of a query are the same on every run.
+ */
+public class BudgetedAliasFinder {
+
+  private final AliasFinder finder;
+
+  public BudgetedAliasFinder(AliasFinder finder) {
+    this.finder = finder;
+  }
+
+  /**
+   * Solves the query under {@link BoomerangLock}. The context of the finder must be replaced
+   * before the next query if the result is partial, since the query was terminated.
+   */
+  public AliasResults findAliases(AliasQuery query) {
+    synchronized (BoomerangLock.LOCK) {
+      finder.context.startTime = System.currentTimeMillis();
+      AliasResults res;
+      try {
+        res = finder.findAliasAtStmt(query.getAccessGraph(), query.getStmt(),
+            query.getContextRequester());
+      } catch (BoomerangTimeoutException e) {
+        return terminate(finder.context, query);
+      }
+      ManagedBoomerangContext.finishQuery(finder.context, false);
+      return res;
+    }
+  }
+
+  /**
+   * Collects the aliases the context found for the query so far and terminates the query. The
+   * summaries the query buffered are discarded.
+   */
+  public static PartialAliasResults terminate(BoomerangContext context, AliasQuery query) {
+    PartialAliasResults res;
+    if (context instanceof ManagedBoomerangContext)
+      res = ((ManagedBoomerangContext) context).getResultsSoFar(query.getStmt(),
+          query.getAccessGraph());
+    else
+      res = new PartialAliasResults();
+    ManagedBoomerangContext.finishQuery(context, true);
+    context.forceTerminate();
+    return res;
+  }
+
+  public AliasFinder getAliasFinder() {
+    return finder;
+  }
+}
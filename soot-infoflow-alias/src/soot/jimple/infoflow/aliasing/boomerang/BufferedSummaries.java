@@ -0,0 +1,106 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.ISummaries;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * The view of a shared summary store that a single context works on. The end summaries its query
+ * adds are buffered until the query completes. A running or aborted query may not have found all
+ * end edges of a summary yet, and Boomerang skips a callee as soon as any end summary of its start
+ * node exists, so other contexts must not see them. The query itself sees the shared summaries
+ * and its own.
+ *
+ * {@link #publish()} hands the buffered summaries to the shared store after the query reached its
+ * fixpoint, {@link #discard()} drops them after it was aborted. Not thread-safe, a context runs one
+ * query at a time.
+ */
+public class BufferedSummaries implements ISummaries<Unit, SootMethod, AccessGraph> {
+
+  private final ISummaries<Unit, SootMethod, AccessGraph> shared;
+  private final SummaryFilter filter;
+  private final Map<Pair<SootMethod, Pair<Unit, AccessGraph>>, Set<IPathEdge<Unit, AccessGraph>>>
+      pending = new HashMap<>();
+
+  public BufferedSummaries(IInfoflowCFG icfg, ISummaries<Unit, SootMethod, AccessGraph> shared) {
+    this.shared = shared;
+    this.filter = new SummaryFilter(icfg);
+  }
+
+  @Override
+  public void addEndSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+    if (!filter.storeAsSummary(m, edge))
+      return;
+    Pair<SootMethod, Pair<Unit, AccessGraph>> key =
+        new Pair<SootMethod, Pair<Unit, AccessGraph>>(m, edge.getStartNode());
+    Set<IPathEdge<Unit, AccessGraph>> summaries = pending.get(key);
+    if (summaries == null) {
+      summaries = new HashSet<>();
+      pending.put(key, summaries);
+    }
+    summaries.add(edge);
+  }
+
+  @Override
+  public Collection<IPathEdge<Unit, AccessGraph>> endSummary(SootMethod m,
+      Pair<Unit, AccessGraph> startNode) {
+    Collection<IPathEdge<Unit, AccessGraph>> published = shared.endSummary(m, startNode);
+    Set<IPathEdge<Unit, AccessGraph>> own =
+        pending.get(new Pair<SootMethod, Pair<Unit, AccessGraph>>(m, startNode));
+    if (own == null)
+      return published;
+    if (published == null || published.isEmpty())
+      return own;
+    Set<IPathEdge<Unit, AccessGraph>> res = new HashSet<>(published);
+    res.addAll(own);
+    return res;
+  }
+
+  /**
+   * Adds the buffered summaries to the shared store.
+   */
+  public void publish() {
+    for (Pair<SootMethod, Pair<Unit, AccessGraph>> key : pending.keySet())
+      for (IPathEdge<Unit, AccessGraph> edge : pending.get(key))
+        shared.addEndSummary(key.getO1(), edge);
+    pending.clear();
+  }
+
+  /**
+   * Drops the buffered summaries.
+   */
+  public void discard() {
+    pending.clear();
+  }
+
+  /**
+   * @return The number of start nodes with buffered summaries.
+   */
+  public int size() {
+    return pending.size();
+  }
+
+  public ISummaries<Unit, SootMethod, AccessGraph> getSharedSummaries() {
+    return shared;
+  }
+
+  /**
+   * Drops the buffered summaries and clears the shared store, other contexts lose its summaries
+   * as well.
+   */
+  @Override
+  public void clear() {
+    pending.clear();
+    shared.clear();
+  }
+}
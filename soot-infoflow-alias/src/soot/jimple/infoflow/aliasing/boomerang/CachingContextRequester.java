@@ -0,0 +1,117 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangTimeoutException;
+import boomerang.accesspath.AccessGraph;
+import boomerang.cache.AliasResults;
+import boomerang.context.Context;
+import boomerang.context.IContextRequester;
+import heros.solver.Pair;
+import soot.Unit;
+
+/**
+ * An {@link IContextRequester} that remembers the caller contexts its delegate computed, so that
+ * queries sharing one requester expand each upward slice of the call graph only once. It further
+ * keeps the context-resolved {@link AliasResults} of queries keyed by their initial context and
+ * access graph, see {@link #findAliases(AliasFinder, AccessGraph, Unit)}. Both caches are bounded
+ * and thread-safe.
+ *
+ * Boomerang's {@code ContextGraph} is package-private and keeps its maps ({@code calleeToCaller},
+ * {@code toInitialContextDistance}, {@code stmtToResults}) in private fields of an instance that
+ * every query creates anew, so they are rebuilt per query and cannot be shared. What is expensive
+ * in building them is reused nonetheless: the graph is expanded by asking this requester for the
+ * callers of a context, and the results per context come from sub queries that are answered from
+ * the {@code ResultCache} of the Boomerang context, which clients keep across queries, see
+ * {@link BoomerangContextFactory#createContext(boomerang.cache.ResultCache)}. The maps themselves
+ * are only bookkeeping over these answers.
+ *
+ * The requester must only wrap requesters whose answers do not depend on the query, such as
+ * {@code AllCallersRequester}, and the call graph must not change while it is in use.
+ */
+public class CachingContextRequester implements IContextRequester {
+
+  private final IContextRequester delegate;
+  private final Cache<Context, Collection<Context>> callers;
+  private final Cache<Pair<Context, AccessGraph>, AliasResults> results;
+
+  public CachingContextRequester(IContextRequester delegate) {
+    this(delegate, 100000, 10000);
+  }
+
+  /**
+   * @param maximumContexts The maximal number of contexts whose callers are kept.
+   * @param maximumResults The maximal number of kept query results.
+   */
+  public CachingContextRequester(IContextRequester delegate, long maximumContexts,
+      long maximumResults) {
+    this.delegate = delegate;
+    this.callers = CacheBuilder.newBuilder().maximumSize(maximumContexts).recordStats().build();
+    this.results = CacheBuilder.newBuilder().maximumSize(maximumResults).recordStats().build();
+  }
+
+  @Override
+  public Collection<Context> getCallSiteOf(Context c) {
+    Collection<Context> res = callers.getIfPresent(c);
+    if (res == null) {
+      res = Collections.unmodifiableSet(new HashSet<>(delegate.getCallSiteOf(c)));
+      callers.put(c, res);
+    }
+    return res;
+  }
+
+  @Override
+  public Context initialContext(Unit stmt) {
+    return delegate.initialContext(stmt);
+  }
+
+  /**
+   * @return The aliases of the access graph at the statement, resolved with this requester. An
+   *         earlier result for the same initial context and access graph is reused, otherwise the
+   *         finder computes it.
+   * @throws BoomerangTimeoutException If the finder runs out of budget. Nothing is kept then.
+   */
+  public AliasResults findAliases(AliasFinder finder, AccessGraph ap, Unit stmt) {
+    Pair<Context, AccessGraph> key = new Pair<>(initialContext(stmt), ap);
+    AliasResults res = results.getIfPresent(key);
+    if (res == null) {
+      res = finder.findAliasAtStmt(ap, stmt, this);
+      if (PartialAliasResults.isComplete(res))
+        results.put(key, res);
+    }
+    return res;
+  }
+
+  /**
+   * Forgets all callers and results, e.g. after the call graph changed.
+   */
+  public void clear() {
+    callers.invalidateAll();
+    results.invalidateAll();
+  }
+
+  public CacheStats getCallerStats() {
+    return callers.stats();
+  }
+
+  public CacheStats getResultStats() {
+    return results.stats();
+  }
+
+  public IContextRequester getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public String toString() {
+    return "CachingContextRequester[" + delegate + ", callers=" + callers.stats() + ", results="
+        + results.stats() + "]";
+  }
+}
@@ -0,0 +1,47 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns consecutive numbers, starting at 0, to objects. Lookups of already numbered objects do
+ * not lock, so the numbering can be shared by concurrent queries.
+ */
+class ConcurrentNumbering<T> {
+
+  private final ConcurrentHashMap<T, Integer> objectToNumber = new ConcurrentHashMap<>();
+  private final List<T> numberToObject = new ArrayList<>();
+
+  /**
+   * @return The number of the object, a new one if it was not numbered yet.
+   */
+  int add(T o) {
+    Integer i = objectToNumber.get(o);
+    if (i != null)
+      return i;
+    synchronized (numberToObject) {
+      i = objectToNumber.get(o);
+      if (i == null) {
+        i = numberToObject.size();
+        numberToObject.add(o);
+        objectToNumber.put(o, i);
+      }
+      return i;
+    }
+  }
+
+  /**
+   * @return The number of the object, or -1 if it was not numbered yet.
+   */
+  int get(T o) {
+    Integer i = objectToNumber.get(o);
+    return i == null ? -1 : i;
+  }
+
+  T get(int number) {
+    synchronized (numberToObject) {
+      return numberToObject.get(number);
+    }
+  }
+}
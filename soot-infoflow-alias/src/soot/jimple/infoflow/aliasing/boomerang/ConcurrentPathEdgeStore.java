@@ -0,0 +1,226 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.collect.Multimap;
+
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+
+/**
+ * A {@link PathEdgeStore} whose state is lock-striped by method. Path edges never leave the
+ * method they were created in, so every operation only touches the stripe of one method: the
+ * stripe owns a {@link PackedPathEdgeStore} and is guarded by its own lock. Edges of different
+ * methods are stored without contention. The first stripe is the state this store inherits, so no
+ * store is allocated that is never used.
+ */
+public class ConcurrentPathEdgeStore extends PackedPathEdgeStore {
+
+  public static final int DEFAULT_STRIPES = 64;
+
+  private final BoomerangContext context;
+  /**
+   * The stores of the stripes, the first one is null and stands for the inherited state.
+   */
+  private final PathEdgeStore[] stripes;
+  private final Object[] locks;
+
+  public ConcurrentPathEdgeStore(BoomerangContext context, Direction direction) {
+    this(context, direction, DEFAULT_STRIPES);
+  }
+
+  public ConcurrentPathEdgeStore(BoomerangContext context, Direction direction, int numStripes) {
+    this(context, direction, numStripes, null);
+  }
+
+  /**
+   * @param visitedMethods Receives the method of every registered edge, or null to not record
+   *        them. Must be thread-safe, all stripes write to it.
+   */
+  public ConcurrentPathEdgeStore(BoomerangContext context, Direction direction, int numStripes,
+      Set<SootMethod> visitedMethods) {
+    this(context, direction, numStripes, visitedMethods, null);
+  }
+
+  /**
+   * @param reachability Receives every connected edge, or null. It is shared by all stripes.
+   */
+  public ConcurrentPathEdgeStore(BoomerangContext context, Direction direction, int numStripes,
+      Set<SootMethod> visitedMethods, PathReachabilityIndex reachability) {
+    super(context, direction, visitedMethods, reachability);
+    if (numStripes < 1)
+      throw new IllegalArgumentException("Need at least one stripe, got " + numStripes);
+    this.context = context;
+    this.stripes = new PathEdgeStore[numStripes];
+    this.locks = new Object[numStripes];
+    locks[0] = new Object();
+    for (int i = 1; i < numStripes; i++) {
+      stripes[i] = new PackedPathEdgeStore(context, direction, visitedMethods, reachability);
+      locks[i] = new Object();
+    }
+  }
+
+  private int stripeOf(Unit u) {
+    SootMethod m = context.icfg.getMethodOf(u);
+    int h = m == null ? 0 : m.hashCode();
+    h ^= (h >>> 16);
+    return (h & 0x7fffffff) % stripes.length;
+  }
+
+  @Override
+  public void register(IPathEdge<Unit, AccessGraph> edge, IPathEdge<Unit, AccessGraph> prevEdge) {
+    int i = stripeOf(edge.getTarget());
+    synchronized (locks[i]) {
+      if (i == 0)
+        super.register(edge, prevEdge);
+      else
+        stripes[i].register(edge, prevEdge);
+    }
+  }
+
+  @Override
+  public boolean hasAlreadyProcessed(IPathEdge<Unit, AccessGraph> edge) {
+    int i = stripeOf(edge.getTarget());
+    synchronized (locks[i]) {
+      return i == 0 ? super.hasAlreadyProcessed(edge) : stripes[i].hasAlreadyProcessed(edge);
+    }
+  }
+
+  @Override
+  public Multimap<Pair<Unit, AccessGraph>, AccessGraph> getResultAtStmtContainingValue(Unit stmt,
+      AccessGraph fact) {
+    int i = stripeOf(stmt);
+    synchronized (locks[i]) {
+      return i == 0 ? super.getResultAtStmtContainingValue(stmt, fact)
+          : stripes[i].getResultAtStmtContainingValue(stmt, fact);
+    }
+  }
+
+  @Override
+  public void pauseEdge(Pair<Unit, AccessGraph> node, IPathEdge<Unit, AccessGraph> edge) {
+    int i = stripeOf(node.getO1());
+    synchronized (locks[i]) {
+      if (i == 0)
+        super.pauseEdge(node, edge);
+      else
+        stripes[i].pauseEdge(node, edge);
+    }
+  }
+
+  @Override
+  public Collection<IPathEdge<Unit, AccessGraph>> getAndRemovePauseEdge(
+      Pair<Unit, AccessGraph> node) {
+    int i = stripeOf(node.getO1());
+    synchronized (locks[i]) {
+      return new ArrayList<>(i == 0 ? super.getAndRemovePauseEdge(node)
+          : stripes[i].getAndRemovePauseEdge(node));
+    }
+  }
+
+  @Override
+  public void addMeetableEdge(IPathEdge<Unit, AccessGraph> edge) {
+    int i = stripeOf(edge.getTarget());
+    synchronized (locks[i]) {
+      if (i == 0)
+        super.addMeetableEdge(edge);
+      else
+        stripes[i].addMeetableEdge(edge);
+    }
+  }
+
+  @Override
+  public boolean hasMeetableEdges(Unit stmt) {
+    int i = stripeOf(stmt);
+    synchronized (locks[i]) {
+      return i == 0 ? super.hasMeetableEdges(stmt) : stripes[i].hasMeetableEdges(stmt);
+    }
+  }
+
+  @Override
+  public Set<IPathEdge<Unit, AccessGraph>> getAndRemoveMeetableEdges(Pair<Unit, AccessGraph> node) {
+    int i = stripeOf(node.getO1());
+    synchronized (locks[i]) {
+      return new HashSet<>(i == 0 ? super.getAndRemoveMeetableEdges(node)
+          : stripes[i].getAndRemoveMeetableEdges(node));
+    }
+  }
+
+  @Override
+  public void connect(IPathEdge<Unit, AccessGraph> edge, IPathEdge<Unit, AccessGraph> prevEdge) {
+    int i = stripeOf(edge.getTarget());
+    synchronized (locks[i]) {
+      if (i == 0)
+        super.connect(edge, prevEdge);
+      else
+        stripes[i].connect(edge, prevEdge);
+    }
+  }
+
+  @Override
+  public Collection<IPathEdge<Unit, AccessGraph>> getBackwardsAdjacent(
+      Pair<Unit, AccessGraph> node, IPathEdge<Unit, AccessGraph> edge) {
+    int i = stripeOf(node.getO1());
+    synchronized (locks[i]) {
+      return new ArrayList<>(i == 0 ? super.getBackwardsAdjacent(node, edge)
+          : stripes[i].getBackwardsAdjacent(node, edge));
+    }
+  }
+
+  @Override
+  public int size() {
+    int size;
+    synchronized (locks[0]) {
+      size = super.size();
+    }
+    for (int i = 1; i < stripes.length; i++) {
+      synchronized (locks[i]) {
+        size += stripes[i].size();
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    synchronized (locks[0]) {
+      super.clear();
+    }
+    for (int i = 1; i < stripes.length; i++) {
+      synchronized (locks[i]) {
+        stripes[i].clear();
+      }
+    }
+  }
+
+  @Override
+  public void printStats() {
+    synchronized (locks[0]) {
+      super.printStats();
+    }
+    for (int i = 1; i < stripes.length; i++) {
+      synchronized (locks[i]) {
+        stripes[i].printStats();
+      }
+    }
+  }
+
+  @Override
+  public void printTopMethods(int n) {
+    synchronized (locks[0]) {
+      super.printTopMethods(n);
+    }
+    for (int i = 1; i < stripes.length; i++) {
+      synchronized (locks[i]) {
+        stripes[i].printTopMethods(n);
+      }
+    }
+  }
+}
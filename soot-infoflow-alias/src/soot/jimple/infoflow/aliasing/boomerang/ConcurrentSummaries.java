@@ -0,0 +1,121 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
+import soot.jimple.infoflow.collect.MyConcurrentHashMap;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * End summaries that may be read and written by several Boomerang queries at the same time. The
+ * store is split per method and per start node, both levels are concurrent maps, so queries only
+ * contend when they summarize the same method.
+ *
+ * Which edges are stored is decided by {@link SummaryFilter}, so one instance can be shared
+ * between the contexts of different queries.
+ */
+public class ConcurrentSummaries implements InvalidatableSummaries {
+
+  private final SummaryFilter filter;
+  private final AccessGraphInterner interner;
+  private final MyConcurrentHashMap<SootMethod, MyConcurrentHashMap<Pair<Unit, AccessGraph>, Set<IPathEdge<Unit, AccessGraph>>>> methodToSummaries =
+      new MyConcurrentHashMap<>();
+
+  public ConcurrentSummaries(IInfoflowCFG icfg) {
+    this(icfg, new AccessGraphInterner());
+  }
+
+  /**
+   * @param interner Canonicalizes the facts of stored summaries.
+   */
+  public ConcurrentSummaries(IInfoflowCFG icfg, AccessGraphInterner interner) {
+    this.filter = new SummaryFilter(icfg);
+    this.interner = interner;
+  }
+
+  @Override
+  public void addEndSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+    if (!storeAsSummary(m, edge))
+      return;
+    edge = interner.intern(edge);
+    MyConcurrentHashMap<Pair<Unit, AccessGraph>, Set<IPathEdge<Unit, AccessGraph>>> perMethod =
+        methodToSummaries.putIfAbsentElseGet(m,
+            new MyConcurrentHashMap<Pair<Unit, AccessGraph>, Set<IPathEdge<Unit, AccessGraph>>>());
+    Set<IPathEdge<Unit, AccessGraph>> summaries = perMethod.putIfAbsentElseGet(edge.getStartNode(),
+        new ConcurrentHashSet<IPathEdge<Unit, AccessGraph>>());
+    summaries.add(edge);
+  }
+
+  @Override
+  public Collection<IPathEdge<Unit, AccessGraph>> endSummary(SootMethod m,
+      Pair<Unit, AccessGraph> startNode) {
+    ConcurrentMap<Pair<Unit, AccessGraph>, Set<IPathEdge<Unit, AccessGraph>>> perMethod =
+        methodToSummaries.get(m);
+    if (perMethod == null)
+      return Collections.emptySet();
+    Set<IPathEdge<Unit, AccessGraph>> summaries = perMethod.get(startNode);
+    if (summaries == null)
+      return Collections.emptySet();
+    return summaries;
+  }
+
+  public boolean storeAsSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+    return filter.storeAsSummary(m, edge);
+  }
+
+  /**
+   * Removes all summaries of the given method.
+   */
+  public void invalidate(SootMethod m) {
+    methodToSummaries.remove(m);
+  }
+
+  @Override
+  public void invalidate(Collection<SootMethod> methods) {
+    for (SootMethod m : methods)
+      methodToSummaries.remove(m);
+  }
+
+  /**
+   * @return The methods for which summaries are stored.
+   */
+  public Set<SootMethod> getMethods() {
+    return Collections.unmodifiableSet(methodToSummaries.keySet());
+  }
+
+  /**
+   * @return All summaries of the given method, for any start node.
+   */
+  public Collection<IPathEdge<Unit, AccessGraph>> getSummaries(SootMethod m) {
+    ConcurrentMap<Pair<Unit, AccessGraph>, Set<IPathEdge<Unit, AccessGraph>>> perMethod =
+        methodToSummaries.get(m);
+    if (perMethod == null)
+      return Collections.emptySet();
+    List<IPathEdge<Unit, AccessGraph>> res = new ArrayList<>();
+    for (Set<IPathEdge<Unit, AccessGraph>> summaries : perMethod.values())
+      res.addAll(summaries);
+    return res;
+  }
+
+  /**
+   * @return The number of methods for which at least one summary is stored.
+   */
+  public int size() {
+    return methodToSummaries.size();
+  }
+
+  @Override
+  public void clear() {
+    methodToSummaries.clear();
+  }
+}
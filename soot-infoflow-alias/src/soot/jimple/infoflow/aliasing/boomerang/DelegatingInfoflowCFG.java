@@ -0,0 +1,177 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.toolkits.graph.DirectedGraph;
+
+/**
+ * An interprocedural CFG that forwards every request to another {@link IInfoflowCFG}. Subclasses
+ * override single methods to change how Boomerang sees the program without touching the
+ * underlying control-flow graph.
+ */
+public class DelegatingInfoflowCFG implements IInfoflowCFG {
+
+  protected final IInfoflowCFG delegate;
+
+  public DelegatingInfoflowCFG(IInfoflowCFG delegate) {
+    this.delegate = delegate;
+  }
+
+  public IInfoflowCFG getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public SootMethod getMethodOf(Unit u) {
+    return delegate.getMethodOf(u);
+  }
+
+  @Override
+  public List<Unit> getSuccsOf(Unit u) {
+    return delegate.getSuccsOf(u);
+  }
+
+  @Override
+  public boolean isExitStmt(Unit u) {
+    return delegate.isExitStmt(u);
+  }
+
+  @Override
+  public boolean isStartPoint(Unit u) {
+    return delegate.isStartPoint(u);
+  }
+
+  @Override
+  public boolean isFallThroughSuccessor(Unit u, Unit succ) {
+    return delegate.isFallThroughSuccessor(u, succ);
+  }
+
+  @Override
+  public boolean isBranchTarget(Unit u, Unit succ) {
+    return delegate.isBranchTarget(u, succ);
+  }
+
+  @Override
+  public Collection<Unit> getStartPointsOf(SootMethod m) {
+    return delegate.getStartPointsOf(m);
+  }
+
+  @Override
+  public boolean isCallStmt(Unit u) {
+    return delegate.isCallStmt(u);
+  }
+
+  @Override
+  public Set<Unit> allNonCallStartNodes() {
+    return delegate.allNonCallStartNodes();
+  }
+
+  @Override
+  public Collection<SootMethod> getCalleesOfCallAt(Unit u) {
+    return delegate.getCalleesOfCallAt(u);
+  }
+
+  @Override
+  public Collection<Unit> getCallersOf(SootMethod m) {
+    return delegate.getCallersOf(m);
+  }
+
+  @Override
+  public Collection<Unit> getReturnSitesOfCallAt(Unit u) {
+    return delegate.getReturnSitesOfCallAt(u);
+  }
+
+  @Override
+  public Set<Unit> getCallsFromWithin(SootMethod m) {
+    return delegate.getCallsFromWithin(m);
+  }
+
+  @Override
+  public List<Unit> getPredsOf(Unit u) {
+    return delegate.getPredsOf(u);
+  }
+
+  @Override
+  public Collection<Unit> getEndPointsOf(SootMethod m) {
+    return delegate.getEndPointsOf(m);
+  }
+
+  @Override
+  public List<Unit> getPredsOfCallAt(Unit u) {
+    return delegate.getPredsOfCallAt(u);
+  }
+
+  @Override
+  public Set<Unit> allNonCallEndNodes() {
+    return delegate.allNonCallEndNodes();
+  }
+
+  @Override
+  public DirectedGraph<Unit> getOrCreateUnitGraph(SootMethod body) {
+    return delegate.getOrCreateUnitGraph(body);
+  }
+
+  @Override
+  public List<Value> getParameterRefs(SootMethod m) {
+    return delegate.getParameterRefs(m);
+  }
+
+  @Override
+  public boolean isReturnSite(Unit n) {
+    return delegate.isReturnSite(n);
+  }
+
+  @Override
+  public UnitContainer getPostdominatorOf(Unit u) {
+    return delegate.getPostdominatorOf(u);
+  }
+
+  @Override
+  public boolean isStaticFieldRead(SootMethod method, SootField variable) {
+    return delegate.isStaticFieldRead(method, variable);
+  }
+
+  @Override
+  public boolean isStaticFieldUsed(SootMethod method, SootField variable) {
+    return delegate.isStaticFieldUsed(method, variable);
+  }
+
+  @Override
+  public boolean hasSideEffects(SootMethod method) {
+    return delegate.hasSideEffects(method);
+  }
+
+  @Override
+  public void notifyMethodChanged(SootMethod m) {
+    delegate.notifyMethodChanged(m);
+  }
+
+  @Override
+  public boolean methodReadsValue(SootMethod m, Value v) {
+    return delegate.methodReadsValue(m, v);
+  }
+
+  @Override
+  public boolean containsAllocSiteOfType(SootMethod m, Type t) {
+    return delegate.containsAllocSiteOfType(m, t);
+  }
+
+  @Override
+  public boolean accessesField(SootMethod m, SootField f) {
+    return delegate.accessesField(m, f);
+  }
+
+  @Override
+  public boolean writesToField(SootMethod m, SootField f) {
+    return delegate.writesToField(m, f);
+  }
+
+}
@@ -0,0 +1,278 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import boomerang.AliasFinder;
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore.Direction;
+import boomerang.cache.AliasResults;
+import boomerang.context.AllCallersRequester;
+import boomerang.context.IContextRequester;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.FastHierarchy;
+import soot.Local;
+import soot.RefType;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.CaughtExceptionRef;
+import soot.jimple.IdentityStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.NewExpr;
+import soot.jimple.SpecialInvokeExpr;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * An {@link IInfoflowCFG} that refines the callees of virtual calls on demand, so the underlying
+ * CFG can be built from a cheap call graph such as CHA. When the callees of a call with more than
+ * one target are requested, a points-to query on the underlying CFG resolves the allocation sites
+ * of the receiver, and only the targets the allocated types dispatch to are kept. The refined
+ * callees are cached per call site until a method changes.
+ *
+ * A call keeps all its callees if the query runs out of budget or the receiver may stem from
+ * something else than a {@code new} expression. Boomerang does not report such origins as
+ * allocation sites, so the backward path edges of the query are watched for them: a parameter of
+ * a method without callers, e.g. of an entry point, a static field, a caught exception, and the
+ * return value of a native, phantom or reflective call. Callers are only filtered by the call
+ * sites refined so far, {@link #getCallersOf(SootMethod)} never starts a query.
+ *
+ * Refinement queries run under {@link BoomerangLock}. The refined callees of a call site are
+ * computed at most once per thread that asks for them concurrently, the first result is kept.
+ */
+public class DemandCallGraphCFG extends DelegatingInfoflowCFG {
+
+  /**
+   * The default budget of a refinement query.
+   */
+  public static final QueryBudget DEFAULT_BUDGET = new QueryBudget(50000, 0, 0);
+
+  private final BoomerangContextFactory refinementFactory;
+  private final IContextRequester contextRequester;
+  private final ConcurrentMap<Unit, Collection<SootMethod>> refinedCallees =
+      new ConcurrentHashMap<>();
+  private final AtomicLong queries = new AtomicLong();
+  private final AtomicLong refinedCalls = new AtomicLong();
+  private final AtomicLong removedCallees = new AtomicLong();
+
+  public DemandCallGraphCFG(IInfoflowCFG delegate) {
+    this(delegate, createRefinementFactory(delegate));
+  }
+
+  /**
+   * @param refinementFactory Creates the contexts of the refinement queries. Its CFG must be the
+   *        delegate, or another CFG that does not refine its call graph.
+   */
+  public DemandCallGraphCFG(IInfoflowCFG delegate, BoomerangContextFactory refinementFactory) {
+    super(delegate);
+    this.refinementFactory = refinementFactory;
+    // Only packed path edge stores report the backward edges
+    refinementFactory.setPackedPathEdges(true);
+    this.contextRequester = new CachingContextRequester(
+        new AllCallersRequester<BiDiInterproceduralCFG<Unit, SootMethod>>(delegate));
+  }
+
+  private static BoomerangContextFactory createRefinementFactory(IInfoflowCFG delegate) {
+    BoomerangContextFactory factory = BoomerangContextFactory.threadSafe(delegate);
+    factory.setQueryBudget(DEFAULT_BUDGET);
+    return factory;
+  }
+
+  @Override
+  public Collection<SootMethod> getCalleesOfCallAt(Unit u) {
+    Collection<SootMethod> callees = delegate.getCalleesOfCallAt(u);
+    if (callees.size() <= 1)
+      return callees;
+    Collection<SootMethod> res = refinedCallees.get(u);
+    if (res != null)
+      return res;
+    res = refine((Stmt) u, callees);
+    Collection<SootMethod> known = refinedCallees.putIfAbsent(u, res);
+    if (known != null)
+      return known;
+    if (res.size() < callees.size()) {
+      refinedCalls.incrementAndGet();
+      removedCallees.addAndGet(callees.size() - res.size());
+    }
+    return res;
+  }
+
+  private Collection<SootMethod> refine(Stmt stmt, Collection<SootMethod> callees) {
+    if (!stmt.containsInvokeExpr())
+      return callees;
+    InvokeExpr ie = stmt.getInvokeExpr();
+    if (!(ie instanceof InstanceInvokeExpr) || ie instanceof SpecialInvokeExpr)
+      return callees;
+    Value base = ((InstanceInvokeExpr) ie).getBase();
+    if (!(base instanceof Local))
+      return callees;
+    Set<SootMethod> targets = dispatchTargets((Local) base, stmt, ie.getMethod());
+    if (targets == null)
+      return callees;
+    List<SootMethod> res = new ArrayList<>();
+    String subSignature = ie.getMethod().getSubSignature();
+    for (SootMethod m : callees) {
+      // Keep edges that are no dispatch of the invoked method, e.g. to Thread.run()
+      if (targets.contains(m) || !m.getSubSignature().equals(subSignature))
+        res.add(m);
+    }
+    if (res.size() == callees.size())
+      return callees;
+    return Collections.unmodifiableList(res);
+  }
+
+  /**
+   * @return The methods the allocation sites of the receiver dispatch the invoked method to, or
+   *         null if they are not all known.
+   */
+  private Set<SootMethod> dispatchTargets(Local receiver, Stmt stmt, SootMethod invoked) {
+    queries.incrementAndGet();
+    AliasQuery query =
+        new AliasQuery(new AccessGraph(receiver, receiver.getType()), stmt, contextRequester);
+    OriginDetector origins = new OriginDetector();
+    AliasResults aliases;
+    synchronized (BoomerangLock.LOCK) {
+      AliasFinder finder = refinementFactory.createAliasFinder();
+      if (!(finder.context instanceof ManagedBoomerangContext))
+        return null;
+      ((ManagedBoomerangContext) finder.context).setPathEdgeListener(origins);
+      aliases = new BudgetedAliasFinder(finder).findAliases(query);
+    }
+    if (!PartialAliasResults.isComplete(aliases) || aliases.isEmpty() || origins.found)
+      return null;
+    FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+    Set<SootMethod> res = new HashSet<>();
+    for (Pair<Unit, AccessGraph> site : aliases.keySet()) {
+      Unit alloc = site.getO2().getSourceStmt();
+      if (!(alloc instanceof AssignStmt)
+          || !(((AssignStmt) alloc).getRightOp() instanceof NewExpr))
+        return null;
+      RefType type = ((NewExpr) ((AssignStmt) alloc).getRightOp()).getBaseType();
+      try {
+        res.add(hierarchy.resolveConcreteDispatch(type.getSootClass(), invoked));
+      } catch (RuntimeException e) {
+        // The type does not implement the method, e.g. it is phantom
+        return null;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Watches the backward path edges of a refinement query for values that do not stem from an
+   * allocation site Boomerang reports.
+   */
+  private class OriginDetector implements PathEdgeListener {
+    private boolean found;
+
+    @Override
+    public void onPathEdge(IPathEdge<Unit, AccessGraph> edge, Direction direction) {
+      if (found || direction != Direction.Backward)
+        return;
+      AccessGraph fact = edge.factAtTarget();
+      found = fact.isStatic() || isOrigin(edge.getTarget(), fact.getBase());
+    }
+
+    private boolean isOrigin(Unit u, Local base) {
+      if (base == null)
+        return false;
+      if (u instanceof IdentityStmt && ((IdentityStmt) u).getLeftOp() == base) {
+        Value right = ((IdentityStmt) u).getRightOp();
+        if (right instanceof CaughtExceptionRef)
+          return true;
+        return delegate.getCallersOf(delegate.getMethodOf(u)).isEmpty();
+      }
+      if (!(u instanceof AssignStmt) || ((AssignStmt) u).getLeftOp() != base)
+        return false;
+      Value right = ((AssignStmt) u).getRightOp();
+      if (right instanceof StaticFieldRef)
+        return true;
+      if (!((Stmt) u).containsInvokeExpr())
+        return false;
+      Collection<SootMethod> callees = delegate.getCalleesOfCallAt(u);
+      if (callees.isEmpty())
+        return true;
+      for (SootMethod callee : callees)
+        if (!callee.hasActiveBody() || isReflective(callee))
+          return true;
+      return false;
+    }
+  }
+
+  private static boolean isReflective(SootMethod m) {
+    String className = m.getDeclaringClass().getName();
+    return className.startsWith("java.lang.reflect.")
+        || className.equals("java.lang.Class") && m.getName().equals("newInstance");
+  }
+
+  @Override
+  public Collection<Unit> getCallersOf(SootMethod m) {
+    Collection<Unit> callers = delegate.getCallersOf(m);
+    List<Unit> res = null;
+    for (Unit callSite : callers) {
+      Collection<SootMethod> callees = refinedCallees.get(callSite);
+      boolean removed = callees != null && !callees.contains(m);
+      if (removed && res == null) {
+        res = new ArrayList<>(callers.size());
+        for (Unit c : callers) {
+          if (c == callSite)
+            break;
+          res.add(c);
+        }
+      } else if (!removed && res != null) {
+        res.add(callSite);
+      }
+    }
+    return res == null ? callers : res;
+  }
+
+  /**
+   * Forgets all refined callees, a changed method may allocate other objects.
+   */
+  @Override
+  public void notifyMethodChanged(SootMethod m) {
+    delegate.notifyMethodChanged(m);
+    refinedCallees.clear();
+  }
+
+  /**
+   * @return The number of points-to queries issued to refine calls.
+   */
+  public long getQueryCount() {
+    return queries.get();
+  }
+
+  /**
+   * @return The number of calls that lost at least one callee.
+   */
+  public long getRefinedCallCount() {
+    return refinedCalls.get();
+  }
+
+  /**
+   * @return The number of call edges removed in total.
+   */
+  public long getRemovedCalleeCount() {
+    return removedCallees.get();
+  }
+
+  @Override
+  public String toString() {
+    return "DemandCallGraphCFG[queries=" + queries + ", refinedCalls=" + refinedCalls
+        + ", removedCallees=" + removedCallees + "]";
+  }
+}
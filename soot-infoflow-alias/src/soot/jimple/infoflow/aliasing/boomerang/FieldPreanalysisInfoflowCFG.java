@@ -0,0 +1,47 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Answers the field pre-analysis queries of an {@link IInfoflowCFG} from a
+ * {@link TransitiveFieldPreanalysis} instead of Boomerang's {@code FieldPreanalysis}. The
+ * analysis is thread-safe and may be shared by a forward and a backward CFG.
+ */
+public class FieldPreanalysisInfoflowCFG extends DelegatingInfoflowCFG {
+
+  private final TransitiveFieldPreanalysis preanalysis;
+
+  public FieldPreanalysisInfoflowCFG(IInfoflowCFG delegate,
+      TransitiveFieldPreanalysis preanalysis) {
+    super(delegate);
+    this.preanalysis = preanalysis;
+  }
+
+  @Override
+  public boolean containsAllocSiteOfType(SootMethod m, Type t) {
+    return preanalysis.containsAllocSiteOfType(m, t);
+  }
+
+  @Override
+  public boolean accessesField(SootMethod m, SootField f) {
+    return preanalysis.accessesField(m, f);
+  }
+
+  @Override
+  public boolean writesToField(SootMethod m, SootField f) {
+    return preanalysis.writesToField(m, f);
+  }
+
+  @Override
+  public void notifyMethodChanged(SootMethod m) {
+    delegate.notifyMethodChanged(m);
+    preanalysis.invalidate(m);
+  }
+
+  public TransitiveFieldPreanalysis getPreanalysis() {
+    return preanalysis;
+  }
+}
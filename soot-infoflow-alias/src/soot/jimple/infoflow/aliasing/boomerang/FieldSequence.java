@@ -0,0 +1,100 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Arrays;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import boomerang.accesspath.WrappedSootField;
+import soot.SootField;
+
+/**
+ * An immutable, hash-consed sequence of fields. Every sequence is canonical, so two sequences are
+ * equal iff they are the same object. The sequences are interned weakly and only refer to their
+ * fields, so nothing outlives a reset of Soot once the sequences of the old scene are unused.
+ *
+ * The {@link WrappedSootField} array Boomerang needs to build an access graph is created once per
+ * sequence and then reused.
+ */
+public final class FieldSequence {
+
+  private static final Interner<FieldSequence> INTERNER = Interners.newWeakInterner();
+
+  public static final FieldSequence EMPTY = INTERNER.intern(new FieldSequence(new SootField[0]));
+
+  private final SootField[] fields;
+  private final int hashCode;
+  private volatile WrappedSootField[] wrappedFields;
+
+  private FieldSequence(SootField[] fields) {
+    this.fields = fields;
+    this.hashCode = Arrays.hashCode(fields);
+  }
+
+  public static FieldSequence of(SootField... fields) {
+    if (fields == null || fields.length == 0)
+      return EMPTY;
+    return INTERNER.intern(new FieldSequence(fields.clone()));
+  }
+
+  public int size() {
+    return fields.length;
+  }
+
+  public boolean isEmpty() {
+    return fields.length == 0;
+  }
+
+  public SootField getField(int index) {
+    return fields[index];
+  }
+
+  public SootField getFirstField() {
+    return fields.length == 0 ? null : fields[0];
+  }
+
+  public SootField getLastField() {
+    return fields.length == 0 ? null : fields[fields.length - 1];
+  }
+
+  /**
+   * @return The fields wrapped for Boomerang, without statement and with the declared type of
+   *         each field. The array is shared by all callers and must not be modified.
+   */
+  public WrappedSootField[] toWrappedFields() {
+    WrappedSootField[] wrapped = wrappedFields;
+    if (wrapped == null) {
+      wrapped = new WrappedSootField[fields.length];
+      for (int i = 0; i < fields.length; i++)
+        wrapped[i] = new WrappedSootField(fields[i], fields[i].getType(), null);
+      wrappedFields = wrapped;
+    }
+    return wrapped;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    FieldSequence other = (FieldSequence) obj;
+    return hashCode == other.hashCode && Arrays.equals(fields, other.fields);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0)
+        sb.append('.');
+      sb.append(fields[i].getName());
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,62 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+
+/**
+ * The methods no alias query is run in and no caller context is taken from, e.g. {@code
+ * hashCode()} and {@code equals(Object)}. A method is ignored if its signature contains one of the
+ * given fragments. The methods of the classes in the scene are matched once on construction and
+ * kept in a bit set over their numbers, so lookups neither build signatures nor lock. Methods
+ * created later are matched on every lookup.
+ */
+public class IgnoredMethods {
+
+  private final List<String> signatureFragments;
+  private final BitSet ignored = new BitSet();
+  private final int maxNumber;
+
+  public IgnoredMethods(Collection<String> signatureFragments) {
+    this.signatureFragments = new ArrayList<>(signatureFragments);
+    int max = 0;
+    for (SootClass c : new ArrayList<>(Scene.v().getClasses())) {
+      for (SootMethod m : c.getMethods()) {
+        int number = m.getNumber();
+        if (number <= 0)
+          continue;
+        max = Math.max(max, number);
+        if (matches(m))
+          ignored.set(number);
+      }
+    }
+    this.maxNumber = max;
+  }
+
+  public boolean isIgnored(SootMethod m) {
+    int number = m.getNumber();
+    if (number <= 0 || number > maxNumber)
+      return matches(m);
+    return ignored.get(number);
+  }
+
+  private boolean matches(SootMethod m) {
+    String signature = m.getSignature();
+    for (String fragment : signatureFragments)
+      if (signature.contains(fragment))
+        return true;
+    return false;
+  }
+
+  /**
+   * @return The number of methods matched on construction.
+   */
+  public int size() {
+    return ignored.cardinality();
+  }
+}
@@ -0,0 +1,68 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
+
+/**
+ * The caller contexts a forward analysis entered methods with, indexed by the callee and the fact
+ * at its start point. Contexts are registered as the analysis propagates into callees and are
+ * created once per registration, so a lookup during context resolution returns the stored set
+ * without copying it.
+ *
+ * Every key holds a concurrent set that contexts are added to in place, so a registration costs a
+ * single insertion. Lookups never lock and return an unmodifiable live view, which reflects
+ * contexts the analysis adds concurrently.
+ *
+ * @param <F> The facts of the forward analysis.
+ * @param <C> The caller contexts.
+ */
+public class IncomingContextIndex<F, C> {
+
+  private final ConcurrentMap<Pair<SootMethod, F>, Set<C>> incoming = new ConcurrentHashMap<>();
+  private final AtomicLong contexts = new AtomicLong();
+
+  /**
+   * Registers that the analysis entered the callee with the given fact from the caller context.
+   *
+   * @return Whether the context was not registered for the callee and fact yet.
+   */
+  public boolean add(SootMethod callee, F calleeFact, C callerContext) {
+    Pair<SootMethod, F> key = new Pair<>(callee, calleeFact);
+    Set<C> callerContexts = incoming.get(key);
+    if (callerContexts == null) {
+      Set<C> res = new ConcurrentHashSet<>();
+      callerContexts = incoming.putIfAbsent(key, res);
+      if (callerContexts == null)
+        callerContexts = res;
+    }
+    if (!callerContexts.add(callerContext))
+      return false;
+    contexts.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * @return The caller contexts registered for the callee and fact so far.
+   */
+  public Set<C> getCallerContexts(SootMethod callee, F calleeFact) {
+    Set<C> res = incoming.get(new Pair<SootMethod, F>(callee, calleeFact));
+    return res == null ? Collections.<C>emptySet() : Collections.unmodifiableSet(res);
+  }
+
+  public void clear() {
+    incoming.clear();
+    contexts.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "IncomingContextIndex[entries=" + incoming.size() + ", contexts=" + contexts + "]";
+  }
+}
@@ -0,0 +1,129 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangContext;
+import boomerang.BoomerangTimeoutException;
+import boomerang.cache.AliasResults;
+import boomerang.cache.ResultCache;
+import soot.SootMethod;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Answers alias queries and keeps their results across code changes. Every result is indexed by
+ * the methods its query visited. When methods change, {@link #methodsChanged(Collection)} only
+ * discards the results and summaries that depend on them; all other results are reused without
+ * running Boomerang again. Not thread-safe.
+ *
+ * Every query runs with its own {@link ResultCache}. A sub-query answered from a cache registers
+ * no path edges, so a cache shared between queries would hide the methods the cached result
+ * depends on from the query that hits it, and the query would not be invalidated when they change.
+ */
+public class IncrementalAliasFinder {
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final BoomerangContextFactory contextFactory;
+  private final Map<AliasQuery, AliasResults> results = new HashMap<>();
+  private final MethodDependencyIndex<AliasQuery> dependencies = new MethodDependencyIndex<>();
+  private long queryCounter;
+  private long reuseCounter;
+  private long invalidationCounter;
+
+  /**
+   * Answers the field pre-analysis queries of the CFG from a {@link TransitiveFieldPreanalysis},
+   * which unlike Boomerang's can be invalidated per method.
+   */
+  public IncrementalAliasFinder(IInfoflowCFG icfg) {
+    this(BoomerangContextFactory.withPreanalysis(icfg, new TransitiveFieldPreanalysis()));
+    contextFactory.setShareSummaries(true);
+  }
+
+  /**
+   * @param contextFactory Creates the context of every query. Queries only profit from the
+   *        summaries of earlier ones if the factory shares them. Its CFGs must answer from a
+   *        {@link TransitiveFieldPreanalysis}, see {@link BoomerangContextFactory#withPreanalysis}.
+   */
+  public IncrementalAliasFinder(BoomerangContextFactory contextFactory) {
+    if (contextFactory.getPreanalysis() == null)
+      throw new IllegalArgumentException(
+          "The field pre-analysis of the context factory cannot be invalidated");
+    this.contextFactory = contextFactory;
+    contextFactory.setTrackVisitedMethods(true);
+  }
+
+  /**
+   * @return The aliases of the query, computed by an earlier call if no method it depends on has
+   *         changed since. A query that exceeds the budget is answered with the
+   *         {@link PartialAliasResults} found so far, which are not kept.
+   */
+  public AliasResults findAliases(AliasQuery query) {
+    queryCounter++;
+    AliasResults res = results.get(query);
+    if (res != null) {
+      reuseCounter++;
+      return res;
+    }
+    BoomerangContext context = contextFactory.createContext(new ResultCache());
+    AliasFinder finder = new AliasFinder(context);
+    synchronized (BoomerangLock.LOCK) {
+      context.startTime = System.currentTimeMillis();
+      try {
+        res = finder.findAliasAtStmt(query.getAccessGraph(), query.getStmt(),
+            query.getContextRequester());
+      } catch (BoomerangTimeoutException e) {
+        return BudgetedAliasFinder.terminate(context, query);
+      }
+      ((ManagedBoomerangContext) context).finishQuery(false);
+      res = contextFactory.getInterner().intern(res);
+    }
+    results.put(query, res);
+    dependencies.record(query, ((ManagedBoomerangContext) context).getVisitedMethods());
+    return res;
+  }
+
+  /**
+   * Invalidates everything that depends on the given methods. Must be called after their bodies
+   * changed and before the next query.
+   *
+   * @return The number of discarded results.
+   */
+  public int methodsChanged(Collection<SootMethod> changedMethods) {
+    Set<SootMethod> affected = contextFactory.invalidate(changedMethods);
+    Set<AliasQuery> stale = dependencies.removeDependents(affected);
+    for (AliasQuery q : stale)
+      results.remove(q);
+    invalidationCounter += stale.size();
+    logger.debug("{} changed methods affect {} methods and {} of {} alias results",
+        changedMethods.size(), affected.size(), stale.size(), stale.size() + results.size());
+    return stale.size();
+  }
+
+  public BoomerangContextFactory getContextFactory() {
+    return contextFactory;
+  }
+
+  public long getQueryCount() {
+    return queryCounter;
+  }
+
+  /**
+   * @return The number of queries answered from an earlier result.
+   */
+  public long getReuseCount() {
+    return reuseCounter;
+  }
+
+  /**
+   * @return The number of results discarded because of code changes.
+   */
+  public long getInvalidationCount() {
+    return invalidationCounter;
+  }
+}
@@ -0,0 +1,34 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Set;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.pathconstructor.BackwardsPathConstructor;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * A {@link BackwardsPathConstructor} that answers from a {@link PathReachabilityIndex} instead of
+ * walking the path edges of the store again for every edge. The store must connect its edges to
+ * the same index, see {@link IndexingPathEdgeStore} and {@link PackedPathEdgeStore}. Unlike the
+ * default constructor, a set is recomputed once new edges were connected to the paths it was
+ * computed from.
+ */
+public class IndexedBackwardsPathConstructor extends BackwardsPathConstructor<Unit, AccessGraph,
+    SootMethod, BiDiInterproceduralCFG<Unit, SootMethod>> {
+
+  private final PathReachabilityIndex index;
+
+  public IndexedBackwardsPathConstructor(PathEdgeStore pathEdges, PathReachabilityIndex index) {
+    super(pathEdges);
+    this.index = index;
+  }
+
+  @Override
+  public Set<Unit> computeSetOfVisitableStatements(IPathEdge<Unit, AccessGraph> edge) {
+    return index.visitableStatements(edge);
+  }
+}
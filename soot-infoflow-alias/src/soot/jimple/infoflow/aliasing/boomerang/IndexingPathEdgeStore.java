@@ -0,0 +1,36 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.BoomerangContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore;
+import boomerang.ifdssolver.IPathEdge;
+import soot.Unit;
+
+/**
+ * The regular {@link PathEdgeStore}, which in addition connects its edges to a
+ * {@link PathReachabilityIndex} for an {@link IndexedBackwardsPathConstructor}. Unlike a
+ * {@link PackedPathEdgeStore} it keeps no index of its own and answers every query from the
+ * regular store.
+ */
+public class IndexingPathEdgeStore extends PathEdgeStore {
+
+  private final PathReachabilityIndex reachability;
+
+  public IndexingPathEdgeStore(BoomerangContext context, Direction direction,
+      PathReachabilityIndex reachability) {
+    super(context, direction);
+    this.reachability = reachability;
+  }
+
+  @Override
+  public void connect(IPathEdge<Unit, AccessGraph> edge, IPathEdge<Unit, AccessGraph> prevEdge) {
+    super.connect(edge, prevEdge);
+    reachability.connect(edge, prevEdge);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    reachability.clear();
+  }
+}
@@ -0,0 +1,20 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.ISummaries;
+import soot.SootMethod;
+import soot.Unit;
+
+/**
+ * End summaries that can be dropped per method, so that a code change only discards the summaries
+ * it affects.
+ */
+public interface InvalidatableSummaries extends ISummaries<Unit, SootMethod, AccessGraph> {
+
+  /**
+   * Removes all summaries of the given methods.
+   */
+  void invalidate(Collection<SootMethod> methods);
+}
@@ -0,0 +1,233 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import boomerang.AliasFinder;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+
+/**
+ * Pointer transfer rules of library methods, read from a text file. Boomerang does not descend
+ * into a summarised method, the rules describe how it moves objects between its receiver, its
+ * arguments and its return value instead, see {@link SummarizedDataFlow}.
+ *
+ * Every line holds a method signature followed by its rules, separated by semicolons, e.g.
+ *
+ * <pre>
+ * &lt;java.util.List: void add(int,java.lang.Object)&gt; arg1 -&gt; this.[]
+ * &lt;java.util.Map: java.lang.Object get(java.lang.Object)&gt; this.[] -&gt; return
+ * </pre>
+ *
+ * A location is {@code this}, {@code argN} or, as target only, {@code return}, optionally
+ * followed by {@code .[]} for the contents of the object. Contents are stored in Boomerang's array
+ * field, so collections are modelled like arrays. A method without rules is summarised as not
+ * moving any object. Lines starting with % are comments.
+ *
+ * The rules of an instance method also apply to the methods overriding it in library classes.
+ * Constructors and static methods are only matched by their exact signature.
+ */
+public class LibrarySummaries {
+
+  /**
+   * The summaries of the {@code java.util} collections and {@code System.arraycopy} shipped with
+   * this project, relative to its root.
+   */
+  public static final String DEFAULT_FILE = "BoomerangLibrarySummaries.txt";
+
+  private final Map<String, Map<String, List<Transfer>>> summaries;
+  private final LoadingCache<SootMethod, Optional<List<Transfer>>> methodCache =
+      CacheBuilder.newBuilder().build(new CacheLoader<SootMethod, Optional<List<Transfer>>>() {
+        @Override
+        public Optional<List<Transfer>> load(SootMethod m) throws Exception {
+          return Optional.fromNullable(lookup(m));
+        }
+      });
+
+  /**
+   * @param summaries The rules by class name and method subsignature.
+   */
+  LibrarySummaries(Map<String, Map<String, List<Transfer>>> summaries) {
+    this.summaries = summaries;
+  }
+
+  public static LibrarySummaries fromFile(File f) throws IOException {
+    try (Reader reader = new FileReader(f)) {
+      return parse(reader);
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException If a line is malformed.
+   */
+  public static LibrarySummaries parse(Reader reader) throws IOException {
+    Map<String, Map<String, List<Transfer>>> summaries = new HashMap<>();
+    BufferedReader in = new BufferedReader(reader);
+    String line;
+    int lineNumber = 0;
+    while ((line = in.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("%"))
+        continue;
+      int end = line.indexOf(")>");
+      int colon = line.indexOf(": ");
+      if (!line.startsWith("<") || end < 0 || colon < 0 || colon > end)
+        throw new IllegalArgumentException("Line " + lineNumber + ": Invalid signature " + line);
+      String className = line.substring(1, colon);
+      String subSignature = line.substring(colon + 2, end + 1);
+      List<Transfer> transfers = new ArrayList<>();
+      for (String rule : line.substring(end + 2).split(";")) {
+        if (rule.trim().isEmpty())
+          continue;
+        String[] locations = rule.split("->");
+        if (locations.length != 2)
+          throw new IllegalArgumentException("Line " + lineNumber + ": Invalid rule " + rule);
+        Location from = Location.parse(locations[0].trim(), lineNumber);
+        if (from.value == Location.RETURN)
+          throw new IllegalArgumentException("Line " + lineNumber + ": Return is no source");
+        transfers.add(new Transfer(from, Location.parse(locations[1].trim(), lineNumber)));
+      }
+      Map<String, List<Transfer>> methods = summaries.get(className);
+      if (methods == null) {
+        methods = new HashMap<>();
+        summaries.put(className, methods);
+      }
+      methods.put(subSignature, Collections.unmodifiableList(transfers));
+    }
+    return new LibrarySummaries(summaries);
+  }
+
+  /**
+   * @return The rules of the method, or null if it is not summarised or belongs to an application
+   *         class. A call may only be summarised if all its callees are, see
+   *         {@link SummarizedDataFlow}.
+   */
+  public List<Transfer> summaryOf(SootMethod m) {
+    return methodCache.getUnchecked(m).orNull();
+  }
+
+  private List<Transfer> lookup(SootMethod m) {
+    SootClass declaringClass = m.getDeclaringClass();
+    if (declaringClass.isApplicationClass())
+      return null;
+    String subSignature = m.getSubSignature();
+    if (m.isStatic() || m.isConstructor())
+      return rulesOf(declaringClass, subSignature);
+    // Walk the supertypes breadth-first, the closest rule wins
+    LinkedList<SootClass> worklist = new LinkedList<>();
+    worklist.add(declaringClass);
+    while (!worklist.isEmpty()) {
+      SootClass c = worklist.poll();
+      List<Transfer> res = rulesOf(c, subSignature);
+      if (res != null)
+        return res;
+      if (c.hasSuperclass())
+        worklist.add(c.getSuperclass());
+      worklist.addAll(c.getInterfaces());
+    }
+    return null;
+  }
+
+  private List<Transfer> rulesOf(SootClass c, String subSignature) {
+    Map<String, List<Transfer>> methods = summaries.get(c.getName());
+    return methods == null ? null : methods.get(subSignature);
+  }
+
+  /**
+   * @return The number of summarised methods.
+   */
+  public int size() {
+    int size = 0;
+    for (Map<String, List<Transfer>> methods : summaries.values())
+      size += methods.size();
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "LibrarySummaries[" + size() + " methods of " + summaries.size() + " classes]";
+  }
+
+  /**
+   * One rule: the object at the source location may be the object at the target location after
+   * the call.
+   */
+  public static class Transfer {
+    final Location from;
+    final Location to;
+
+    Transfer(Location from, Location to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public String toString() {
+      return from + " -> " + to;
+    }
+  }
+
+  /**
+   * A value at a call site, or the contents of that value.
+   */
+  static class Location {
+    static final int THIS = -1;
+    static final int RETURN = -2;
+
+    /**
+     * The argument index, or {@link #THIS} or {@link #RETURN}.
+     */
+    final int value;
+    /**
+     * The field of the contents, or null for the value itself.
+     */
+    final SootField field;
+
+    private Location(int value, SootField field) {
+      this.value = value;
+      this.field = field;
+    }
+
+    private static Location parse(String s, int lineNumber) {
+      SootField field = null;
+      if (s.endsWith(".[]")) {
+        field = AliasFinder.ARRAY_FIELD;
+        s = s.substring(0, s.length() - 3);
+      }
+      if (s.equals("this"))
+        return new Location(THIS, field);
+      if (s.equals("return"))
+        return new Location(RETURN, field);
+      if (s.startsWith("arg")) {
+        try {
+          return new Location(Integer.parseInt(s.substring(3)), field);
+        } catch (NumberFormatException e) {
+          // Reported below
+        }
+      }
+      throw new IllegalArgumentException("Line " + lineNumber + ": Invalid location " + s);
+    }
+
+    @Override
+    public String toString() {
+      String s = value == THIS ? "this" : value == RETURN ? "return" : "arg" + value;
+      return field == null ? s : s + ".[]";
+    }
+  }
+}
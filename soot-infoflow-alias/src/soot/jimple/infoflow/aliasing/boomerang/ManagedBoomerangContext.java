@@ -0,0 +1,449 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import boomerang.BoomerangContext;
+import boomerang.SubQueryContext;
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore;
+import boomerang.bidi.PathEdgeStore.Direction;
+import boomerang.debug.IBoomerangDebugger;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.ISummaries;
+import boomerang.pathconstructor.BackwardsPathConstructor;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * A {@link BoomerangContext} whose summary and path edge stores are chosen by the client instead
+ * of being hard-wired. The given summaries stay installed for the whole lifetime of the context,
+ * so several contexts can share them. Shared summaries are wrapped in {@link BufferedSummaries}
+ * and {@link #finishQuery(boolean)} publishes them once the query is done. Path edges are always
+ * private to the context; when {@link #clearPathEdges()} replaces them the configured store type
+ * is used again.
+ *
+ * If requested, the context records the methods in which its queries registered path edges, see
+ * {@link #getVisitedMethods()}. Packed stores further index the backward paths, see
+ * {@link IndexedBackwardsPathConstructor}.
+ *
+ * With a {@link QueryBudget} the context counts the work of its query and reports to be out of
+ * budget when a limit is exceeded, the wall-clock budget of Boomerang is not used then. Only the
+ * packed and striped path edge stores count, so a budget always installs one of them.
+ *
+ * An {@link AliasListener} is told about the allocation sites of a query as soon as their forward
+ * path edges reach the query statement. If it asks to stop, the context reports to be out of
+ * budget, which makes Boomerang abort the query.
+ *
+ * A {@link PathEdgeListener} sees every path edge the packed or striped stores register.
+ *
+ * A {@link MetricsCollector} measures the queries of the context, see
+ * {@link #setMetricsCollector(MetricsCollector)}.
+ *
+ * {@link #resetQueryState()} prepares the context for another query, so that a client can keep one
+ * context and its summaries for all its queries.
+ */
+public class ManagedBoomerangContext extends BoomerangContext {
+
+  private static final Field DEBUGGER_FIELD = accessibleField("debugger");
+  private static final Field POIS_FIELD = accessibleField("ALL_DISCOVERED_POIS");
+  private static final Field MEETING_POINTS_FIELD = accessibleField("meetingPointToPath");
+  private static final Field SOLVERS_FIELD = accessibleField("solvers");
+  private static final Field METHOD_QUERY_COUNTER_FIELD = accessibleField("methodQueryCounter");
+
+  private final int pathEdgeStripes;
+  private final boolean packedPathEdges;
+  private final Set<SootMethod> visitedMethods;
+  private final BufferedSummaries fwBuffer;
+  private final BufferedSummaries bwBuffer;
+  private QueryBudget queryBudget;
+  private long propagations;
+  private long pathEdges;
+  private long subQueries;
+  private boolean budgetSuspended;
+  private AliasListener aliasListener;
+  private Unit listenedStmt;
+  private AccessGraph listenedAccessGraph;
+  private final Set<Pair<Unit, AccessGraph>> reportedSites = new HashSet<>();
+  private boolean stopRequested;
+  private PathEdgeListener pathEdgeListener;
+  private MetricsCollector metricsCollector;
+
+  public ManagedBoomerangContext(IInfoflowCFG icfg, IInfoflowCFG bwicfg,
+      ISummaries<Unit, SootMethod, AccessGraph> fwSummaries,
+      ISummaries<Unit, SootMethod, AccessGraph> bwSummaries, int pathEdgeStripes) {
+    this(icfg, bwicfg, fwSummaries, bwSummaries, pathEdgeStripes, false);
+  }
+
+  /**
+   * @param fwSummaries Forward end summaries. Summaries shared with other contexts must be
+   *        wrapped in {@link BufferedSummaries}, a {@link SummaryCache} is wrapped always.
+   * @param bwSummaries Backward end summaries, like the forward ones.
+   * @param pathEdgeStripes Number of lock stripes of the path edge stores, or 0 to use an
+   *        unsynchronized store.
+   * @param packedPathEdges Whether an unsynchronized store keeps the processed edges in packed
+   *        form, see {@link PackedPathEdgeStore}. Striped stores always do.
+   */
+  public ManagedBoomerangContext(IInfoflowCFG icfg, IInfoflowCFG bwicfg,
+      ISummaries<Unit, SootMethod, AccessGraph> fwSummaries,
+      ISummaries<Unit, SootMethod, AccessGraph> bwSummaries, int pathEdgeStripes,
+      boolean packedPathEdges) {
+    this(icfg, bwicfg, fwSummaries, bwSummaries, pathEdgeStripes, packedPathEdges, false);
+  }
+
+  /**
+   * @param trackVisitedMethods Whether to record the methods path edges are registered in. The
+   *        path edges are packed in this case.
+   */
+  public ManagedBoomerangContext(IInfoflowCFG icfg, IInfoflowCFG bwicfg,
+      ISummaries<Unit, SootMethod, AccessGraph> fwSummaries,
+      ISummaries<Unit, SootMethod, AccessGraph> bwSummaries, int pathEdgeStripes,
+      boolean packedPathEdges, boolean trackVisitedMethods) {
+    super(icfg, bwicfg);
+    this.pathEdgeStripes = pathEdgeStripes;
+    this.packedPathEdges = packedPathEdges;
+    if (!trackVisitedMethods)
+      this.visitedMethods = null;
+    else if (pathEdgeStripes > 0)
+      this.visitedMethods = new ConcurrentHashSet<>();
+    else
+      this.visitedMethods = new HashSet<>();
+    // A cache must not evict the summaries of the running query
+    if (fwSummaries instanceof SummaryCache)
+      fwSummaries = new BufferedSummaries(icfg, fwSummaries);
+    if (bwSummaries instanceof SummaryCache)
+      bwSummaries = new BufferedSummaries(icfg, bwSummaries);
+    this.FW_SUMMARIES = fwSummaries;
+    this.BW_SUMMARIES = bwSummaries;
+    this.fwBuffer =
+        fwSummaries instanceof BufferedSummaries ? (BufferedSummaries) fwSummaries : null;
+    this.bwBuffer =
+        bwSummaries instanceof BufferedSummaries ? (BufferedSummaries) bwSummaries : null;
+    installPathEdges();
+  }
+
+  /**
+   * Publishes the summaries the last query buffered if it reached its fixpoint and discards them
+   * if it was aborted, e.g. because it ran out of budget or its listener stopped it.
+   */
+  public void finishQuery(boolean aborted) {
+    aborted |= stopRequested;
+    finish(fwBuffer, aborted);
+    finish(bwBuffer, aborted);
+  }
+
+  /**
+   * Finishes the query of the given context if it is managed, see {@link #finishQuery(boolean)}.
+   */
+  static void finishQuery(BoomerangContext context, boolean aborted) {
+    if (context instanceof ManagedBoomerangContext)
+      ((ManagedBoomerangContext) context).finishQuery(aborted);
+  }
+
+  private static void finish(BufferedSummaries buffer, boolean aborted) {
+    if (buffer == null)
+      return;
+    if (aborted)
+      buffer.discard();
+    else
+      buffer.publish();
+  }
+
+  /**
+   * @param reachability Receives the connected edges if the store supports it, or null.
+   */
+  protected PathEdgeStore createPathEdgeStore(Direction direction,
+      PathReachabilityIndex reachability) {
+    if (pathEdgeStripes > 0)
+      return new ConcurrentPathEdgeStore(this, direction, pathEdgeStripes, visitedMethods,
+          reachability);
+    if (packedPathEdges || visitedMethods != null || queryBudget != null)
+      return new PackedPathEdgeStore(this, direction, visitedMethods, reachability);
+    if (reachability != null)
+      return new IndexingPathEdgeStore(this, direction, reachability);
+    return new PathEdgeStore(this, direction);
+  }
+
+  private void installPathEdges() {
+    FW_PATHEDGES = createPathEdgeStore(Direction.Forward, null);
+    PathReachabilityIndex reachability = new PathReachabilityIndex();
+    BW_PATHEDGES = createPathEdgeStore(Direction.Backward, reachability);
+    // A store created by a subclass may not feed the index
+    if (BW_PATHEDGES instanceof PackedPathEdgeStore
+        || BW_PATHEDGES instanceof IndexingPathEdgeStore)
+      BW_PATH_CONSTRUCTOR = new IndexedBackwardsPathConstructor(BW_PATHEDGES, reachability);
+    else
+      BW_PATH_CONSTRUCTOR = new BackwardsPathConstructor<>(BW_PATHEDGES);
+  }
+
+  /**
+   * @return The methods in which path edges were registered since this context was created or its
+   *         query state was reset, or null if the context does not track them. Replacing the path
+   *         edges does not reset it.
+   */
+  public Set<SootMethod> getVisitedMethods() {
+    return visitedMethods == null ? null : Collections.unmodifiableSet(visitedMethods);
+  }
+
+  /**
+   * Must be set before the query starts, since the path edges are replaced by a store that counts
+   * the work of the query if the current one does not.
+   *
+   * @param queryBudget The budget of the query, or null to use the wall-clock budget.
+   */
+  public void setQueryBudget(QueryBudget queryBudget) {
+    this.queryBudget = queryBudget;
+    if (queryBudget != null && !(FW_PATHEDGES instanceof PackedPathEdgeStore))
+      installPathEdges();
+  }
+
+  public QueryBudget getQueryBudget() {
+    return queryBudget;
+  }
+
+  void countPropagation() {
+    propagations++;
+  }
+
+  /**
+   * Called by the path edge stores for every new path edge.
+   */
+  void pathEdgeRegistered(IPathEdge<Unit, AccessGraph> edge, Direction direction) {
+    pathEdges++;
+    if (metricsCollector != null && metricsCollector.isRecording())
+      metricsCollector.pathEdgeRegistered(icfg.getMethodOf(edge.getTarget()));
+    if (direction == Direction.Forward && aliasListener != null)
+      forwardEdgeRegistered(edge);
+    if (pathEdgeListener != null)
+      pathEdgeListener.onPathEdge(edge, direction);
+  }
+
+  /**
+   * Reports every path edge registered from now on to the listener, until the query state is
+   * reset. Only packed or striped path edge stores report their edges.
+   */
+  public void setPathEdgeListener(PathEdgeListener listener) {
+    this.pathEdgeListener = listener;
+  }
+
+  @Override
+  public void push(SubQueryContext subQuery) {
+    subQueries++;
+    super.push(subQuery);
+  }
+
+  /**
+   * Reports the allocation sites of the aliases of the access graph at the statement to the
+   * listener. Must be set before the query starts; a context can answer several queries one after
+   * the other, each with its own listener.
+   */
+  public void setAliasListener(Unit stmt, AccessGraph accessGraph, AliasListener listener) {
+    this.listenedStmt = stmt;
+    this.listenedAccessGraph = accessGraph;
+    this.aliasListener = listener;
+    reportedSites.clear();
+    stopRequested = false;
+  }
+
+  /**
+   * The allocation site of an alias is the start node of its edge, as in the results of the
+   * {@link PathEdgeStore}.
+   */
+  private void forwardEdgeRegistered(IPathEdge<Unit, AccessGraph> edge) {
+    if (edge.getTarget().equals(listenedStmt)
+        && edge.factAtTarget().equals(listenedAccessGraph))
+      reportAllocationSite(edge.getStartNode());
+  }
+
+  /**
+   * Reports the allocation site to the listener unless it was reported before.
+   *
+   * @return Whether the query should continue.
+   */
+  boolean reportAllocationSite(Pair<Unit, AccessGraph> allocationSite) {
+    if (!stopRequested && reportedSites.add(allocationSite)
+        && !aliasListener.onAllocationSite(allocationSite))
+      stopRequested = true;
+    return !stopRequested;
+  }
+
+  /**
+   * @return Whether the listener stopped the query.
+   */
+  public boolean isStopRequested() {
+    return stopRequested;
+  }
+
+  /**
+   * Measures the queries of this context. Boomerang offers no way to replace the
+   * {@link IBoomerangDebugger} of a context, so the collector is installed into the final field
+   * reflectively; it must be set before the first query. Path edges are only counted by packed or
+   * striped path edge stores.
+   */
+  public void setMetricsCollector(MetricsCollector collector) {
+    if (DEBUGGER_FIELD == null)
+      throw new IllegalStateException("This version of Boomerang does not support debuggers");
+    try {
+      DEBUGGER_FIELD.set(this, collector);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot install the metrics collector", e);
+    }
+    collector.attach(this);
+    this.metricsCollector = collector;
+    FW_SUMMARIES = collector.countLookups(FW_SUMMARIES);
+    BW_SUMMARIES = collector.countLookups(BW_SUMMARIES);
+  }
+
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
+  /**
+   * @return The number of points of indirection this context discovered so far, by type.
+   */
+  Map<String, Integer> countDiscoveredPOIs() {
+    Map<String, Integer> res = new HashMap<>();
+    if (POIS_FIELD == null)
+      return res;
+    try {
+      for (Object poi : (Collection<?>) POIS_FIELD.get(this)) {
+        String type = poi.getClass().getSimpleName();
+        Integer count = res.get(type);
+        res.put(type, count == null ? 1 : count + 1);
+      }
+    } catch (IllegalAccessException e) {
+      // Counted as none
+    }
+    return res;
+  }
+
+  private static Field accessibleField(String name) {
+    try {
+      Field f = BoomerangContext.class.getDeclaredField(name);
+      f.setAccessible(true);
+      return f;
+    } catch (NoSuchFieldException | SecurityException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void forceTerminate() {
+    if (metricsCollector != null)
+      metricsCollector.queryTerminated();
+    super.forceTerminate();
+  }
+
+  @Override
+  public boolean isOutOfBudget() {
+    if (budgetSuspended)
+      return false;
+    if (stopRequested)
+      return true;
+    if (queryBudget == null)
+      return super.isOutOfBudget();
+    return queryBudget.isExceeded(propagations, pathEdges, subQueries);
+  }
+
+  /**
+   * @return The aliases of the given query found so far. Used after the query ran out of budget
+   *         and before the path edges are cleared.
+   */
+  public PartialAliasResults getResultsSoFar(Unit stmt, AccessGraph accessGraph) {
+    budgetSuspended = true;
+    try {
+      return new PartialAliasResults(
+          HashMultimap.create(FW_PATHEDGES.getResultAtStmtContainingValue(stmt, accessGraph)));
+    } finally {
+      budgetSuspended = false;
+    }
+  }
+
+  public long getPropagationCount() {
+    return propagations;
+  }
+
+  public long getPathEdgeCount() {
+    return pathEdges;
+  }
+
+  public long getSubQueryCount() {
+    return subQueries;
+  }
+
+  @Override
+  public void clearPathEdges() {
+    FW_PATHEDGES.clear();
+    BW_PATHEDGES.clear();
+    installPathEdges();
+  }
+
+  /**
+   * Drops everything that belongs to the last query: the path edges, the sub query stack, the
+   * points of indirection and meeting points, the per-method query counts, the budget counters,
+   * the alias and path edge listeners and the visited methods. The summaries and the query cache
+   * are kept for the next query. Boomerang has no reset of its own, so its private query state is
+   * cleared reflectively.
+   */
+  public void resetQueryState() {
+    clear();
+    clearPathEdges();
+    clearCollection(POIS_FIELD);
+    clearCollection(SOLVERS_FIELD);
+    if (MEETING_POINTS_FIELD != null) {
+      try {
+        ((Multimap<?, ?>) MEETING_POINTS_FIELD.get(this)).clear();
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Cannot reset the meeting points", e);
+      }
+    }
+    if (METHOD_QUERY_COUNTER_FIELD != null) {
+      try {
+        ((Map<?, ?>) METHOD_QUERY_COUNTER_FIELD.get(this)).clear();
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Cannot reset the method query counts", e);
+      }
+    }
+    propagations = 0;
+    pathEdges = 0;
+    subQueries = 0;
+    aliasListener = null;
+    listenedStmt = null;
+    listenedAccessGraph = null;
+    reportedSites.clear();
+    stopRequested = false;
+    pathEdgeListener = null;
+    if (visitedMethods != null)
+      visitedMethods.clear();
+  }
+
+  private void clearCollection(Field field) {
+    if (field == null)
+      return;
+    try {
+      ((Collection<?>) field.get(this)).clear();
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot reset " + field.getName(), e);
+    }
+  }
+
+  /**
+   * Clears the installed summaries. If they are shared, the other contexts lose them as well.
+   */
+  @Override
+  public void resetSummaries() {
+    FW_SUMMARIES.clear();
+    BW_SUMMARIES.clear();
+  }
+}
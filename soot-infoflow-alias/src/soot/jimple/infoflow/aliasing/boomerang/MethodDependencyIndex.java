@@ -0,0 +1,73 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+import soot.SootMethod;
+
+/**
+ * Records which methods a cached result was computed from, so that the results depending on a set
+ * of changed methods can be found without looking at all of them. Not thread-safe.
+ *
+ * @param <K> The key of a cached result.
+ */
+public class MethodDependencyIndex<K> {
+
+  private final SetMultimap<SootMethod, K> methodToDependents = HashMultimap.create();
+  private final SetMultimap<K, SootMethod> dependentToMethods = HashMultimap.create();
+
+  /**
+   * Records that the result of the given key depends on the given methods, in addition to the
+   * methods recorded before.
+   */
+  public void record(K key, Collection<SootMethod> methods) {
+    for (SootMethod m : methods) {
+      methodToDependents.put(m, key);
+      dependentToMethods.put(key, m);
+    }
+  }
+
+  /**
+   * @return The keys whose results depend on at least one of the given methods.
+   */
+  public Set<K> getDependents(Collection<SootMethod> methods) {
+    Set<K> res = new HashSet<>();
+    for (SootMethod m : methods)
+      res.addAll(methodToDependents.get(m));
+    return res;
+  }
+
+  /**
+   * Forgets all dependencies of the given key.
+   */
+  public void remove(K key) {
+    for (SootMethod m : dependentToMethods.removeAll(key))
+      methodToDependents.remove(m, key);
+  }
+
+  /**
+   * Removes and returns the keys whose results depend on at least one of the given methods.
+   */
+  public Set<K> removeDependents(Collection<SootMethod> methods) {
+    Set<K> res = getDependents(methods);
+    for (K key : res)
+      remove(key);
+    return res;
+  }
+
+  /**
+   * @return The number of keys with at least one recorded dependency.
+   */
+  public int size() {
+    return dependentToMethods.keySet().size();
+  }
+
+  public void clear() {
+    methodToDependents.clear();
+    dependentToMethods.clear();
+  }
+}
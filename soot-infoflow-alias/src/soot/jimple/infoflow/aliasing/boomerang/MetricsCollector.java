@@ -0,0 +1,201 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.cache.AliasResults;
+import boomerang.cache.Query;
+import boomerang.context.Context;
+import boomerang.context.IContextRequester;
+import boomerang.debug.IBoomerangDebugger;
+import boomerang.ifdssolver.DefaultIFDSTabulationProblem.Direction;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.ISummaries;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+
+/**
+ * Measures the queries of one {@link ManagedBoomerangContext} and adds a {@link QueryMetrics} per
+ * sampled query to a {@link QueryMetricsLog}. Propagations are counted through the
+ * {@link IBoomerangDebugger} callbacks of the solvers, path edges by the path edge stores of the
+ * context, summary lookups by a wrapper around its summaries. While a query is not sampled every
+ * callback returns after a null check. Not thread-safe, every context has its own collector.
+ */
+public class MetricsCollector implements IBoomerangDebugger {
+
+  private final QueryMetricsLog log;
+  private ManagedBoomerangContext context;
+  private QueryMetrics current;
+  private int depth;
+  private long startNanos;
+  private Map<String, Integer> poisAtStart;
+  private final Set<Context> expandedContexts = new HashSet<>();
+
+  public MetricsCollector(QueryMetricsLog log) {
+    this.log = log;
+  }
+
+  void attach(ManagedBoomerangContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public void startQuery(Query q) {
+    // Queries nested into a running one are part of it
+    if (depth++ > 0 || !log.sampleNext())
+      return;
+    current = new QueryMetrics(q.toString(), q.getMethod());
+    poisAtStart = context.countDiscoveredPOIs();
+    expandedContexts.clear();
+    startNanos = System.nanoTime();
+  }
+
+  @Override
+  public void finishedQuery(Query q, AliasResults res) {
+    if (--depth == 0)
+      finish(true);
+  }
+
+  /**
+   * Records the running query as incomplete, it was terminated before it finished.
+   */
+  void queryTerminated() {
+    depth = 0;
+    finish(false);
+  }
+
+  private void finish(boolean complete) {
+    if (current == null)
+      return;
+    current.timeNanos = System.nanoTime() - startNanos;
+    current.complete = complete;
+    current.contexts = expandedContexts.size();
+    for (Entry<String, Integer> e : context.countDiscoveredPOIs().entrySet()) {
+      Integer before = poisAtStart.get(e.getKey());
+      current.pois.put(e.getKey(), e.getValue() - (before == null ? 0 : before));
+    }
+    log.add(current);
+    current = null;
+    expandedContexts.clear();
+  }
+
+  /**
+   * @return Whether the running query is sampled.
+   */
+  boolean isRecording() {
+    return current != null;
+  }
+
+  void pathEdgeRegistered(SootMethod m) {
+    if (current != null)
+      current.addPathEdge(m);
+  }
+
+  @Override
+  public void normalFlow(Direction dir, Unit start, AccessGraph startFact, Unit target,
+      AccessGraph targetFact) {
+    propagated(dir);
+  }
+
+  @Override
+  public void callToReturn(Direction dir, Unit start, AccessGraph startFact, Unit target,
+      AccessGraph targetFact) {
+    propagated(dir);
+  }
+
+  @Override
+  public void returnFlow(Direction dir, Unit start, AccessGraph startFact, Unit target,
+      AccessGraph targetFact) {
+    propagated(dir);
+  }
+
+  private void propagated(Direction dir) {
+    if (current == null)
+      return;
+    if (dir == Direction.FORWARD)
+      current.forwardPropagations++;
+    else
+      current.backwardPropagations++;
+  }
+
+  @Override
+  public void addIncoming(Direction dir, SootMethod m, Pair<Unit, AccessGraph> callSite,
+      IPathEdge<Unit, AccessGraph> edge) {}
+
+  @Override
+  public void addSummary(Direction dir, SootMethod m, IPathEdge<Unit, AccessGraph> edge) {}
+
+  @Override
+  public void backwardStart(Direction dir, Unit stmt, AccessGraph fact, Unit start) {}
+
+  /**
+   * @return Summaries that count the lookups of the running query in the given ones.
+   */
+  ISummaries<Unit, SootMethod, AccessGraph> countLookups(
+      ISummaries<Unit, SootMethod, AccessGraph> summaries) {
+    return new CountingSummaries(summaries);
+  }
+
+  /**
+   * @return A requester that counts the contexts expanded for the running query, see
+   *         {@link QueryMetrics#getContexts()}.
+   */
+  public IContextRequester observe(IContextRequester requester) {
+    return new ObservedContextRequester(requester);
+  }
+
+  private class CountingSummaries implements ISummaries<Unit, SootMethod, AccessGraph> {
+    private final ISummaries<Unit, SootMethod, AccessGraph> delegate;
+
+    private CountingSummaries(ISummaries<Unit, SootMethod, AccessGraph> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void addEndSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+      delegate.addEndSummary(m, edge);
+    }
+
+    @Override
+    public Collection<IPathEdge<Unit, AccessGraph>> endSummary(SootMethod m,
+        Pair<Unit, AccessGraph> startNode) {
+      Collection<IPathEdge<Unit, AccessGraph>> res = delegate.endSummary(m, startNode);
+      if (current != null) {
+        current.summaryLookups++;
+        if (res != null && !res.isEmpty())
+          current.summaryHits++;
+      }
+      return res;
+    }
+
+    @Override
+    public void clear() {
+      delegate.clear();
+    }
+  }
+
+  private class ObservedContextRequester implements IContextRequester {
+    private final IContextRequester delegate;
+
+    private ObservedContextRequester(IContextRequester delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<Context> getCallSiteOf(Context c) {
+      if (current != null)
+        expandedContexts.add(c);
+      return delegate.getCallSiteOf(c);
+    }
+
+    @Override
+    public Context initialContext(Unit stmt) {
+      return delegate.initialContext(stmt);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import soot.Unit;
+import soot.jimple.infoflow.collect.DenseNumbering;
+import soot.jimple.infoflow.collect.LongHashSet;
+import soot.jimple.infoflow.collect.LongIntHashMap;
+
+/**
+ * The set of processed path edges in packed form. Statements and facts are numbered densely, a
+ * node (statement, fact) is packed into a long and numbered as well, and an edge is the long made
+ * of its start and target node numbers. Membership tests of known edges do not allocate. Not
+ * thread-safe.
+ */
+class PackedPathEdgeSet {
+  private static final int UNKNOWN = -1;
+
+  private final DenseNumbering<Unit> units = new DenseNumbering<>();
+  private final DenseNumbering<AccessGraph> facts = new DenseNumbering<>();
+  private final LongIntHashMap nodes = new LongIntHashMap();
+  private final LongHashSet edges = new LongHashSet(256);
+
+  boolean add(IPathEdge<Unit, AccessGraph> edge) {
+    int start = getOrAddNode(edge.getStart(), edge.factAtSource());
+    int target = getOrAddNode(edge.getTarget(), edge.factAtTarget());
+    return edges.add(pack(start, target));
+  }
+
+  boolean contains(IPathEdge<Unit, AccessGraph> edge) {
+    int start = getNode(edge.getStart(), edge.factAtSource());
+    if (start == UNKNOWN)
+      return false;
+    int target = getNode(edge.getTarget(), edge.factAtTarget());
+    if (target == UNKNOWN)
+      return false;
+    return edges.contains(pack(start, target));
+  }
+
+  private int getOrAddNode(Unit u, AccessGraph fact) {
+    int unit = u == null ? UNKNOWN : units.getOrAdd(u);
+    int f = fact == null ? UNKNOWN : facts.getOrAdd(fact);
+    long key = pack(unit, f);
+    int node = nodes.get(key, UNKNOWN);
+    if (node == UNKNOWN) {
+      node = nodes.size();
+      nodes.put(key, node);
+    }
+    return node;
+  }
+
+  private int getNode(Unit u, AccessGraph fact) {
+    int unit = UNKNOWN;
+    if (u != null) {
+      unit = units.get(u);
+      if (unit == UNKNOWN)
+        return UNKNOWN;
+    }
+    int f = UNKNOWN;
+    if (fact != null) {
+      f = facts.get(fact);
+      if (f == UNKNOWN)
+        return UNKNOWN;
+    }
+    return nodes.get(pack(unit, f), UNKNOWN);
+  }
+
+  private static long pack(int high, int low) {
+    return ((long) high << 32) | (low & 0xffffffffL);
+  }
+
+  int size() {
+    return edges.size();
+  }
+
+  void clear() {
+    edges.clear();
+    nodes.clear();
+    units.clear();
+    facts.clear();
+  }
+}
@@ -0,0 +1,98 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Set;
+
+import boomerang.BoomerangContext;
+import boomerang.BoomerangTimeoutException;
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore;
+import boomerang.ifdssolver.IPathEdge;
+import soot.SootMethod;
+import soot.Unit;
+
+/**
+ * A {@link PathEdgeStore} that answers {@link #hasAlreadyProcessed(IPathEdge)}, the check the
+ * solver performs for every propagation, from a {@link PackedPathEdgeSet} instead of the per
+ * statement hash sets. All other queries are still answered by the regular store, which keeps
+ * storing every edge. The packed set is an opt-in index on top of it: it costs memory in addition
+ * to the regular store, it does not change the worklist of Boomerang's solver, and it refers to
+ * the facts of the query until the store is cleared. It is therefore not used unless a client
+ * asks for it or needs the store to observe its edges.
+ *
+ * Optionally the store records every method it registers an edge in, which tells a client the
+ * methods a query depends on, and connects its edges to a {@link PathReachabilityIndex} for an
+ * {@link IndexedBackwardsPathConstructor}.
+ */
+public class PackedPathEdgeStore extends PathEdgeStore {
+
+  private final BoomerangContext context;
+  private final ManagedBoomerangContext managedContext;
+  private final Direction direction;
+  private final PackedPathEdgeSet processed = new PackedPathEdgeSet();
+  private final Set<SootMethod> visitedMethods;
+  private final PathReachabilityIndex reachability;
+
+  public PackedPathEdgeStore(BoomerangContext context, Direction direction) {
+    this(context, direction, null);
+  }
+
+  /**
+   * @param visitedMethods Receives the method of every registered edge, or null to not record
+   *        them. Path edges are intraprocedural, so the method of the target is the method of the
+   *        edge.
+   */
+  public PackedPathEdgeStore(BoomerangContext context, Direction direction,
+      Set<SootMethod> visitedMethods) {
+    this(context, direction, visitedMethods, null);
+  }
+
+  /**
+   * @param reachability Receives every connected edge, or null. Only backward stores connect
+   *        edges.
+   */
+  public PackedPathEdgeStore(BoomerangContext context, Direction direction,
+      Set<SootMethod> visitedMethods, PathReachabilityIndex reachability) {
+    super(context, direction);
+    this.context = context;
+    this.managedContext =
+        context instanceof ManagedBoomerangContext ? (ManagedBoomerangContext) context : null;
+    this.direction = direction;
+    this.visitedMethods = visitedMethods;
+    this.reachability = reachability;
+  }
+
+  @Override
+  public void register(IPathEdge<Unit, AccessGraph> edge, IPathEdge<Unit, AccessGraph> prevEdge) {
+    super.register(edge, prevEdge);
+    if (!processed.add(edge))
+      return;
+    if (managedContext != null)
+      managedContext.pathEdgeRegistered(edge, direction);
+    if (visitedMethods != null)
+      visitedMethods.add(context.icfg.getMethodOf(edge.getTarget()));
+  }
+
+  @Override
+  public void connect(IPathEdge<Unit, AccessGraph> edge, IPathEdge<Unit, AccessGraph> prevEdge) {
+    super.connect(edge, prevEdge);
+    if (reachability != null && direction == Direction.Backward)
+      reachability.connect(edge, prevEdge);
+  }
+
+  @Override
+  public boolean hasAlreadyProcessed(IPathEdge<Unit, AccessGraph> edge) {
+    if (managedContext != null)
+      managedContext.countPropagation();
+    if (context.isOutOfBudget())
+      throw new BoomerangTimeoutException();
+    return processed.contains(edge);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    processed.clear();
+    if (reachability != null)
+      reachability.clear();
+  }
+}
@@ -0,0 +1,30 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import com.google.common.collect.Multimap;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.cache.AliasResults;
+import heros.solver.Pair;
+import soot.Unit;
+
+/**
+ * The aliases a query found before it ran out of budget. They are a subset of the aliases the
+ * query would find without a budget.
+ */
+public class PartialAliasResults extends AliasResults {
+
+  public PartialAliasResults() {
+    super();
+  }
+
+  public PartialAliasResults(Multimap<Pair<Unit, AccessGraph>, AccessGraph> results) {
+    super(results);
+  }
+
+  /**
+   * @return Whether the results are all aliases of their query.
+   */
+  public static boolean isComplete(AliasResults results) {
+    return !(results instanceof PartialAliasResults);
+  }
+}
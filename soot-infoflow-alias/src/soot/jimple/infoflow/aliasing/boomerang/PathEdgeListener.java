@@ -0,0 +1,18 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.bidi.PathEdgeStore.Direction;
+import boomerang.ifdssolver.IPathEdge;
+import soot.Unit;
+
+/**
+ * Receives the path edges a query registers, see
+ * {@link ManagedBoomerangContext#setPathEdgeListener(PathEdgeListener)}.
+ */
+public interface PathEdgeListener {
+
+  /**
+   * Called once for every new path edge of the forward or backward analysis.
+   */
+  void onPathEdge(IPathEdge<Unit, AccessGraph> edge, Direction direction);
+}
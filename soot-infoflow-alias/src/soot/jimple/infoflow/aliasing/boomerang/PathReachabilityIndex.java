@@ -0,0 +1,193 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.Unit;
+
+/**
+ * Indexes the backward path edges of a store by their start node, so the statements on the paths
+ * to an edge are found by a search over edge numbers instead of one hashed lookup per edge. Edges
+ * are numbered per start node as they are connected, their predecessors are kept as arrays of edge
+ * numbers, and the visited edges and reached statements are bit sets. The statements of an edge
+ * are cached until an edge of the same start node gets a new predecessor. Thread-safe.
+ */
+public class PathReachabilityIndex {
+
+  private final Map<Pair<Unit, AccessGraph>, StartNodePaths> paths = new HashMap<>();
+
+  /**
+   * Records that the edge was propagated from the previous edge.
+   */
+  public synchronized void connect(IPathEdge<Unit, AccessGraph> edge,
+      IPathEdge<Unit, AccessGraph> prevEdge) {
+    Pair<Unit, AccessGraph> startNode = edge.getStartNode();
+    StartNodePaths p = paths.get(startNode);
+    if (p == null) {
+      p = new StartNodePaths();
+      paths.put(startNode, p);
+    }
+    int e = p.number(edge);
+    // A path never leaves its start node, predecessors of other start nodes are not followed
+    if (prevEdge != null && startNode.equals(prevEdge.getStartNode()))
+      p.addPredecessor(e, p.number(prevEdge));
+  }
+
+  /**
+   * @return The targets of the edge and of all edges of its start node it was transitively
+   *         propagated from. The set is read-only.
+   */
+  public synchronized Set<Unit> visitableStatements(IPathEdge<Unit, AccessGraph> edge) {
+    StartNodePaths p = paths.get(edge.getStartNode());
+    Integer e = p == null ? null : p.edgeNumbers.get(edge);
+    if (e == null)
+      return Collections.singleton(edge.getTarget());
+    return p.statementsOf(e);
+  }
+
+  public synchronized void clear() {
+    paths.clear();
+  }
+
+  private static class StartNodePaths {
+    private final Map<IPathEdge<Unit, AccessGraph>, Integer> edgeNumbers = new HashMap<>();
+    private final Map<Unit, Integer> unitNumbers = new HashMap<>();
+    private Unit[] units = new Unit[8];
+    private int edgeCount;
+    private int[] targets = new int[8];
+    private int[][] predecessors = new int[8][];
+    private int[] predecessorCounts = new int[8];
+    private BitSet[] statements = new BitSet[8];
+    private int[] statementsVersion = new int[8];
+    private int version;
+
+    private int number(IPathEdge<Unit, AccessGraph> edge) {
+      Integer e = edgeNumbers.get(edge);
+      if (e != null)
+        return e;
+      if (edgeCount == targets.length) {
+        int capacity = edgeCount * 2;
+        targets = Arrays.copyOf(targets, capacity);
+        predecessors = Arrays.copyOf(predecessors, capacity);
+        predecessorCounts = Arrays.copyOf(predecessorCounts, capacity);
+        statements = Arrays.copyOf(statements, capacity);
+        statementsVersion = Arrays.copyOf(statementsVersion, capacity);
+      }
+      targets[edgeCount] = numberUnit(edge.getTarget());
+      edgeNumbers.put(edge, edgeCount);
+      return edgeCount++;
+    }
+
+    private int numberUnit(Unit u) {
+      Integer n = unitNumbers.get(u);
+      if (n != null)
+        return n;
+      n = unitNumbers.size();
+      // Grow by copy, sets handed out before keep reading the old array
+      if (n == units.length)
+        units = Arrays.copyOf(units, n * 2);
+      units[n] = u;
+      unitNumbers.put(u, n);
+      return n;
+    }
+
+    private void addPredecessor(int edge, int pred) {
+      int[] preds = predecessors[edge];
+      int count = predecessorCounts[edge];
+      for (int i = 0; i < count; i++)
+        if (preds[i] == pred)
+          return;
+      if (preds == null)
+        preds = predecessors[edge] = new int[2];
+      else if (count == preds.length)
+        preds = predecessors[edge] = Arrays.copyOf(preds, count * 2);
+      preds[count] = pred;
+      predecessorCounts[edge]++;
+      version++;
+    }
+
+    private Set<Unit> statementsOf(int edge) {
+      BitSet reached = statements[edge];
+      if (reached == null || statementsVersion[edge] != version) {
+        reached = new BitSet(unitNumbers.size());
+        BitSet visited = new BitSet(edgeCount);
+        int[] worklist = new int[edgeCount];
+        int head = 0;
+        int tail = 0;
+        visited.set(edge);
+        worklist[tail++] = edge;
+        while (head < tail) {
+          int cur = worklist[head++];
+          reached.set(targets[cur]);
+          for (int i = 0; i < predecessorCounts[cur]; i++) {
+            int pred = predecessors[cur][i];
+            if (!visited.get(pred)) {
+              visited.set(pred);
+              worklist[tail++] = pred;
+            }
+          }
+        }
+        statements[edge] = reached;
+        statementsVersion[edge] = version;
+      }
+      return new StatementSet(units, reached);
+    }
+  }
+
+  /**
+   * A read-only view of the statements whose numbers are set in a bit set. Neither the array nor
+   * the bit set change after the view is created.
+   */
+  private static class StatementSet extends AbstractSet<Unit> {
+    private final Unit[] units;
+    private final BitSet numbers;
+    private final int size;
+
+    private StatementSet(Unit[] units, BitSet numbers) {
+      this.units = units;
+      this.numbers = numbers;
+      this.size = numbers.cardinality();
+    }
+
+    @Override
+    public Iterator<Unit> iterator() {
+      return new Iterator<Unit>() {
+        private int next = numbers.nextSetBit(0);
+
+        @Override
+        public boolean hasNext() {
+          return next >= 0;
+        }
+
+        @Override
+        public Unit next() {
+          if (next < 0)
+            throw new NoSuchElementException();
+          Unit u = units[next];
+          next = numbers.nextSetBit(next + 1);
+          return u;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,293 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * End summaries that survive the analysis run. Summaries are kept in a {@link ConcurrentSummaries}
+ * while the analysis runs and written to a file by {@link #save()}. A later run maps the file
+ * into memory and only reads its index; the summaries of a method are decoded when the solver
+ * first asks for them. Records are keyed by method signature and a hash of the bodies and call
+ * edges of the method and all its transitive callees, see {@link SummaryCodec}, so a record is
+ * only used if nothing its summaries depend on changed. Library methods that are shared between
+ * applications are thus summarized once per library version. A record that cannot be decoded
+ * completely is not used at all.
+ *
+ * Contexts read and write these summaries through a {@link BufferedSummaries}, so only the
+ * summaries of completed queries reach this store and are saved. Queries that ran out of budget
+ * never publish theirs.
+ *
+ * The file holds a header, an index of (key, offset, length) entries and the encoded records.
+ * Since the file is mapped as a single buffer it may not exceed 2 GB. A file whose index does not
+ * fit its size is ignored.
+ */
+public class PersistentSummaries implements InvalidatableSummaries {
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private static final int MAGIC = 0x424f4f4d;
+  private static final int VERSION = 2;
+
+  private final ConcurrentSummaries summaries;
+  private final IInfoflowCFG icfg;
+  private final File file;
+  private ByteBuffer mapped;
+  private final Map<String, long[]> index = new HashMap<>();
+  private final ConcurrentHashMap<SootMethod, String> methodKeys = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<SootMethod, Long> localHashes = new ConcurrentHashMap<>();
+  private final Set<SootMethod> loadedMethods =
+      Collections.newSetFromMap(new ConcurrentHashMap<SootMethod, Boolean>());
+  private final AtomicLong loadedRecords = new AtomicLong();
+  private final AtomicLong loadedEdges = new AtomicLong();
+
+  /**
+   * @param summaries Holds the summaries of the current run.
+   * @param icfg Provides the callees whose bodies the records are keyed by.
+   * @param file The file to read persisted summaries from and to save them to. It does not need
+   *        to exist.
+   */
+  public PersistentSummaries(ConcurrentSummaries summaries, IInfoflowCFG icfg, File file)
+      throws IOException {
+    this.summaries = summaries;
+    this.icfg = icfg;
+    this.file = file;
+    if (file.exists())
+      load();
+  }
+
+  private void load() throws IOException {
+    MappedByteBuffer buffer;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      FileChannel channel = raf.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        logger.warn("Ignoring summary file {} larger than 2 GB", file);
+        return;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      logger.warn("Ignoring summary file {} of an unknown format", file);
+      return;
+    }
+    int count = buffer.getInt();
+    Map<String, long[]> entries = new HashMap<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        String key = SummaryCodec.readString(buffer);
+        long offset = buffer.getLong();
+        int length = buffer.getInt();
+        entries.put(key, new long[] {offset, length});
+      }
+    } catch (BufferUnderflowException e) {
+      logger.warn("Ignoring truncated summary file {}", file);
+      return;
+    }
+    int dataStart = buffer.position();
+    long dataLength = buffer.limit() - dataStart;
+    for (long[] entry : entries.values()) {
+      if (entry[0] < 0 || entry[1] < 0 || entry[0] + entry[1] > dataLength) {
+        logger.warn("Ignoring summary file {} with records out of its bounds", file);
+        return;
+      }
+      entry[0] += dataStart;
+    }
+    index.putAll(entries);
+    mapped = buffer;
+    logger.info("Mapped {} persisted method summaries from {}", count, file);
+  }
+
+  @Override
+  public void addEndSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+    summaries.addEndSummary(m, edge);
+  }
+
+  @Override
+  public Collection<IPathEdge<Unit, AccessGraph>> endSummary(SootMethod m,
+      Pair<Unit, AccessGraph> startNode) {
+    ensureLoaded(m);
+    return summaries.endSummary(m, startNode);
+  }
+
+  /**
+   * Adds the persisted summaries of the method to the summaries of this run. A method only counts
+   * as loaded once all its summaries were added, so no query reads a partially loaded method.
+   */
+  private void ensureLoaded(SootMethod m) {
+    if (index.isEmpty() || loadedMethods.contains(m))
+      return;
+    synchronized (loadedMethods) {
+      if (loadedMethods.contains(m))
+        return;
+      long[] entry = index.get(keyOf(m));
+      if (entry != null)
+        load(m, entry);
+      loadedMethods.add(m);
+    }
+  }
+
+  private void load(SootMethod m, long[] entry) {
+    ByteBuffer in = mapped.duplicate();
+    in.limit((int) (entry[0] + entry[1]));
+    in.position((int) entry[0]);
+    try {
+      List<IPathEdge<Unit, AccessGraph>> edges = SummaryCodec.decode(m, in);
+      for (IPathEdge<Unit, AccessGraph> edge : edges)
+        summaries.addEndSummary(m, edge);
+      loadedEdges.addAndGet(edges.size());
+      loadedRecords.incrementAndGet();
+    } catch (SummaryCodec.UnresolvableException e) {
+      logger.debug("Cannot use persisted summaries of {}: {}", m, e.getMessage());
+    }
+  }
+
+  /**
+   * @return The signature of the method together with a hash over the method and all its
+   *         transitive callees. The hash does not depend on the order the callees are found in.
+   */
+  private String keyOf(SootMethod m) {
+    String key = methodKeys.get(m);
+    if (key != null)
+      return key;
+    long hash = 0;
+    Set<SootMethod> visited = new HashSet<>();
+    LinkedList<SootMethod> worklist = new LinkedList<>();
+    visited.add(m);
+    worklist.add(m);
+    while (!worklist.isEmpty()) {
+      SootMethod n = worklist.poll();
+      hash += localHashOf(n);
+      if (!n.hasActiveBody())
+        continue;
+      for (Unit callSite : icfg.getCallsFromWithin(n))
+        for (SootMethod callee : icfg.getCalleesOfCallAt(callSite))
+          if (visited.add(callee))
+            worklist.add(callee);
+    }
+    key = m.getSignature() + "#" + Long.toHexString(localHashOf(m)) + Long.toHexString(hash);
+    methodKeys.put(m, key);
+    return key;
+  }
+
+  private long localHashOf(SootMethod m) {
+    Long hash = localHashes.get(m);
+    if (hash == null) {
+      hash = SummaryCodec.localHash(m, icfg);
+      localHashes.put(m, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * Writes the summaries of this run to the file, together with the persisted summaries of all
+   * methods that were not summarized again. The file is replaced atomically.
+   */
+  public void save() throws IOException {
+    Map<String, byte[]> records = new LinkedHashMap<>();
+    Set<String> signatures = new HashSet<>();
+    for (SootMethod m : summaries.getMethods()) {
+      byte[] record = SummaryCodec.encode(m, summaries.getSummaries(m));
+      if (record == null)
+        continue;
+      records.put(keyOf(m), record);
+      signatures.add(m.getSignature());
+    }
+    // Keep what earlier runs found, unless it belongs to a method summarized again
+    for (Entry<String, long[]> e : index.entrySet()) {
+      String key = e.getKey();
+      String signature = key.substring(0, key.lastIndexOf('#'));
+      if (records.containsKey(key) || signatures.contains(signature))
+        continue;
+      byte[] record = new byte[(int) e.getValue()[1]];
+      ByteBuffer in = mapped.duplicate();
+      in.position((int) e.getValue()[0]);
+      in.get(record);
+      records.put(key, record);
+    }
+
+    File tmp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(records.size());
+      long offset = 0;
+      for (Entry<String, byte[]> e : records.entrySet()) {
+        SummaryCodec.writeString(out, e.getKey());
+        out.writeLong(offset);
+        out.writeInt(e.getValue().length);
+        offset += e.getValue().length;
+      }
+      for (byte[] record : records.values())
+        out.write(record);
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    logger.info("Saved summaries of {} methods to {}", records.size(), file);
+  }
+
+  @Override
+  public void invalidate(Collection<SootMethod> methods) {
+    summaries.invalidate(methods);
+    for (SootMethod m : methods) {
+      methodKeys.remove(m);
+      localHashes.remove(m);
+      loadedMethods.remove(m);
+    }
+  }
+
+  /**
+   * Forgets the summaries of this run. Persisted summaries are read again when needed.
+   */
+  @Override
+  public void clear() {
+    summaries.clear();
+    loadedMethods.clear();
+  }
+
+  public ConcurrentSummaries getSummaries() {
+    return summaries;
+  }
+
+  /**
+   * @return The number of methods whose persisted summaries were used.
+   */
+  public long getLoadedRecordCount() {
+    return loadedRecords.get();
+  }
+
+  @Override
+  public String toString() {
+    return "PersistentSummaries[file=" + file + ", persisted=" + index.size() + ", loaded="
+        + loadedRecords.get() + ", loadedEdges=" + loadedEdges.get() + "]";
+  }
+}
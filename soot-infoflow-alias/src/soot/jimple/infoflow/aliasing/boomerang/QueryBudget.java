@@ -0,0 +1,54 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+/**
+ * Limits the work of a single Boomerang query by counting instead of by wall-clock time, so that
+ * a query is cut off at the same point regardless of machine load or GC pauses. The budget is
+ * checked cooperatively whenever Boomerang checks for a timeout, i.e. before every propagation
+ * and before every point of indirection is processed. A limit of 0 means unlimited.
+ */
+public class QueryBudget {
+
+  public static final QueryBudget UNLIMITED = new QueryBudget(0, 0, 0);
+
+  private final long maxPropagations;
+  private final long maxPathEdges;
+  private final long maxSubQueries;
+
+  /**
+   * @param maxPropagations Maximal number of propagations, processed or not.
+   * @param maxPathEdges Maximal number of distinct path edges.
+   * @param maxSubQueries Maximal number of sub queries started for points of indirection.
+   */
+  public QueryBudget(long maxPropagations, long maxPathEdges, long maxSubQueries) {
+    this.maxPropagations = maxPropagations;
+    this.maxPathEdges = maxPathEdges;
+    this.maxSubQueries = maxSubQueries;
+  }
+
+  public boolean isExceeded(long propagations, long pathEdges, long subQueries) {
+    return exceeds(propagations, maxPropagations) || exceeds(pathEdges, maxPathEdges)
+        || exceeds(subQueries, maxSubQueries);
+  }
+
+  private static boolean exceeds(long count, long max) {
+    return max > 0 && count > max;
+  }
+
+  public long getMaxPropagations() {
+    return maxPropagations;
+  }
+
+  public long getMaxPathEdges() {
+    return maxPathEdges;
+  }
+
+  public long getMaxSubQueries() {
+    return maxSubQueries;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryBudget[propagations=" + maxPropagations + ", pathEdges=" + maxPathEdges
+        + ", subQueries=" + maxSubQueries + "]";
+  }
+}
@@ -0,0 +1,142 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import soot.SootMethod;
+
+/**
+ * What one Boomerang query cost, recorded by a {@link MetricsCollector}. Nested queries, e.g. those
+ * Boomerang issues to resolve calling contexts, are attributed to the query that started them.
+ */
+public class QueryMetrics {
+
+  /**
+   * The types of points of indirection Boomerang discovers, by simple class name.
+   */
+  public static final String[] POI_TYPES = {"Alloc", "Read", "Write", "Call", "Meeting", "Return"};
+
+  private final String query;
+  private final SootMethod method;
+  long timeNanos;
+  boolean complete;
+  long forwardPropagations;
+  long backwardPropagations;
+  long pathEdgeCount;
+  final Map<SootMethod, Integer> pathEdges = new HashMap<>();
+  final Map<String, Integer> pois = new HashMap<>();
+  long summaryLookups;
+  long summaryHits;
+  long contexts;
+
+  QueryMetrics(String query, SootMethod method) {
+    this.query = query;
+    this.method = method;
+  }
+
+  void addPathEdge(SootMethod m) {
+    pathEdgeCount++;
+    if (m == null)
+      return;
+    Integer count = pathEdges.get(m);
+    pathEdges.put(m, count == null ? 1 : count + 1);
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public SootMethod getMethod() {
+    return method;
+  }
+
+  public long getTimeInMilliSeconds() {
+    return timeNanos / 1000000;
+  }
+
+  /**
+   * @return Whether the query reached its fixpoint, i.e. was not terminated.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * @return The number of flow function applications of the forward solver.
+   */
+  public long getForwardPropagations() {
+    return forwardPropagations;
+  }
+
+  /**
+   * @return The number of flow function applications of the backward solver.
+   */
+  public long getBackwardPropagations() {
+    return backwardPropagations;
+  }
+
+  public long getPathEdgeCount() {
+    return pathEdgeCount;
+  }
+
+  /**
+   * @return The number of path edges registered per method, in both directions.
+   */
+  public Map<SootMethod, Integer> getPathEdgesByMethod() {
+    return Collections.unmodifiableMap(pathEdges);
+  }
+
+  /**
+   * @return The method with the most path edges, or null if there are none.
+   */
+  public SootMethod getHottestMethod() {
+    SootMethod res = null;
+    int max = 0;
+    for (Entry<SootMethod, Integer> e : pathEdges.entrySet()) {
+      if (e.getValue() > max) {
+        max = e.getValue();
+        res = e.getKey();
+      }
+    }
+    return res;
+  }
+
+  /**
+   * @return The number of discovered points of indirection of the given type, see
+   *         {@link #POI_TYPES}.
+   */
+  public int getPOICount(String type) {
+    Integer count = pois.get(type);
+    return count == null ? 0 : count;
+  }
+
+  public long getSummaryLookups() {
+    return summaryLookups;
+  }
+
+  /**
+   * @return The number of summary lookups that found at least one end summary.
+   */
+  public long getSummaryHits() {
+    return summaryHits;
+  }
+
+  /**
+   * @return The number of calling contexts that were expanded to resolve the query, the size of
+   *         its context graph. Only known if the context requester was observed, see
+   *         {@link MetricsCollector#observe(boomerang.context.IContextRequester)}.
+   */
+  public long getContexts() {
+    return contexts;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryMetrics[" + query + ", " + getTimeInMilliSeconds() + " ms, complete=" + complete
+        + ", fw=" + forwardPropagations + ", bw=" + backwardPropagations + ", pathEdges="
+        + pathEdgeCount + ", pois=" + pois + ", summaryHits=" + summaryHits + "/" + summaryLookups
+        + ", contexts=" + contexts + "]";
+  }
+}
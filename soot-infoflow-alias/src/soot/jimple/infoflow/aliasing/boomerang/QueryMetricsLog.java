@@ -0,0 +1,156 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soot.SootMethod;
+
+/**
+ * Collects the {@link QueryMetrics} of all contexts of a {@link BoomerangContextFactory} and
+ * exports them as CSV or JSON. Only every n-th query is measured, the others only cost a check of
+ * the {@link MetricsCollector}, so a log with a high sampling interval can stay enabled in
+ * production. The log keeps a bounded number of records, the oldest are dropped first.
+ * Thread-safe.
+ */
+public class QueryMetricsLog {
+
+  /**
+   * The default number of kept records.
+   */
+  public static final int DEFAULT_MAX_RECORDS = 5000;
+
+  private final int samplingInterval;
+  private final int maxRecords;
+  private final AtomicLong queryCounter = new AtomicLong();
+  private final Deque<QueryMetrics> records = new ArrayDeque<>();
+
+  /**
+   * Measures every query.
+   */
+  public QueryMetricsLog() {
+    this(1, DEFAULT_MAX_RECORDS);
+  }
+
+  /**
+   * @param samplingInterval Measure one out of this many queries.
+   * @param maxRecords The maximal number of kept records.
+   */
+  public QueryMetricsLog(int samplingInterval, int maxRecords) {
+    if (samplingInterval < 1)
+      throw new IllegalArgumentException("Sampling interval must be positive");
+    if (maxRecords < 1)
+      throw new IllegalArgumentException("Must keep at least one record");
+    this.samplingInterval = samplingInterval;
+    this.maxRecords = maxRecords;
+  }
+
+  /**
+   * @return Whether the next query should be measured.
+   */
+  boolean sampleNext() {
+    return queryCounter.getAndIncrement() % samplingInterval == 0;
+  }
+
+  synchronized void add(QueryMetrics metrics) {
+    if (records.size() >= maxRecords)
+      records.removeFirst();
+    records.addLast(metrics);
+  }
+
+  public synchronized List<QueryMetrics> getRecords() {
+    return new ArrayList<>(records);
+  }
+
+  /**
+   * @return The number of queries seen, measured or not.
+   */
+  public long getQueryCount() {
+    return queryCounter.get();
+  }
+
+  public synchronized void clear() {
+    records.clear();
+  }
+
+  /**
+   * Writes one line per query, separated by semicolons like the other result files.
+   */
+  public void writeCsv(Writer out) throws IOException {
+    out.write("Query;Method;Time (ms);Complete;Forward Propagations;Backward Propagations;"
+        + "Path Edges;Summary Lookups;Summary Hits;Contexts;");
+    for (String type : QueryMetrics.POI_TYPES)
+      out.write(type + " POIs;");
+    out.write("Hottest Method;Hottest Method Path Edges\n");
+    for (QueryMetrics m : getRecords()) {
+      out.write(csv(m.getQuery()) + ";" + csv(m.getMethod()) + ";" + m.getTimeInMilliSeconds()
+          + ";" + m.isComplete() + ";" + m.getForwardPropagations() + ";"
+          + m.getBackwardPropagations() + ";" + m.getPathEdgeCount() + ";"
+          + m.getSummaryLookups() + ";" + m.getSummaryHits() + ";" + m.getContexts() + ";");
+      for (String type : QueryMetrics.POI_TYPES)
+        out.write(m.getPOICount(type) + ";");
+      SootMethod hottest = m.getHottestMethod();
+      out.write(csv(hottest) + ";"
+          + (hottest == null ? 0 : m.getPathEdgesByMethod().get(hottest)) + "\n");
+    }
+    out.flush();
+  }
+
+  private static String csv(Object o) {
+    return o == null ? "" : o.toString().replace(';', ',').replace('\n', ' ');
+  }
+
+  /**
+   * Writes an array with one object per query, including the path edges of every method.
+   */
+  public void writeJson(Writer out) throws IOException {
+    out.write("[");
+    boolean first = true;
+    for (QueryMetrics m : getRecords()) {
+      out.write(first ? "\n" : ",\n");
+      first = false;
+      out.write("  {\"query\": " + json(m.getQuery()) + ", \"method\": " + json(m.getMethod())
+          + ", \"timeMs\": " + m.getTimeInMilliSeconds() + ", \"complete\": " + m.isComplete()
+          + ", \"forwardPropagations\": " + m.getForwardPropagations()
+          + ", \"backwardPropagations\": " + m.getBackwardPropagations() + ", \"pathEdges\": "
+          + m.getPathEdgeCount() + ", \"summaryLookups\": " + m.getSummaryLookups()
+          + ", \"summaryHits\": " + m.getSummaryHits() + ", \"contexts\": " + m.getContexts()
+          + ", \"pois\": {");
+      for (int i = 0; i < QueryMetrics.POI_TYPES.length; i++) {
+        String type = QueryMetrics.POI_TYPES[i];
+        out.write((i == 0 ? "" : ", ") + json(type) + ": " + m.getPOICount(type));
+      }
+      out.write("}, \"pathEdgesByMethod\": {");
+      boolean firstMethod = true;
+      for (Entry<SootMethod, Integer> e : m.getPathEdgesByMethod().entrySet()) {
+        out.write((firstMethod ? "" : ", ") + json(e.getKey()) + ": " + e.getValue());
+        firstMethod = false;
+      }
+      out.write("}}");
+    }
+    out.write("\n]\n");
+    out.flush();
+  }
+
+  private static String json(Object o) {
+    if (o == null)
+      return "null";
+    String s = o.toString();
+    StringBuilder sb = new StringBuilder("\"");
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\')
+        sb.append('\\').append(c);
+      else if (c < 0x20)
+        sb.append(String.format("\\u%04x", (int) c));
+      else
+        sb.append(c);
+    }
+    return sb.append('"').toString();
+  }
+}
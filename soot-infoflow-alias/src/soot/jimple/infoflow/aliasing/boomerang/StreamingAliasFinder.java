@@ -0,0 +1,181 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+import boomerang.AliasFinder;
+import boomerang.BoomerangTimeoutException;
+import boomerang.accesspath.AccessGraph;
+import boomerang.cache.AliasResults;
+import boomerang.cache.ResultCache;
+import boomerang.context.IContextRequester;
+import heros.solver.Pair;
+import soot.Unit;
+
+/**
+ * Answers alias queries while they are solved. The allocation sites of a query are passed to an
+ * {@link AliasListener} as soon as the forward analysis reaches the query statement from them, and
+ * the listener can stop the query early, e.g. once it saw a site it was looking for. Clients that
+ * only need to know whether two points-to sets intersect therefore do not wait for the full
+ * fixpoint, see {@link #mayAlias(AccessGraph, AccessGraph, Unit, IContextRequester)}. Clients
+ * that only need the allocation sites use {@link #pointsTo(AliasQuery)}. Not thread-safe.
+ *
+ * Allocation sites that are only found by resolving the calling contexts of the query are reported
+ * after the contexts have been resolved, just before the query returns. Every site is reported
+ * once. Queries run under {@link BoomerangLock}, so listeners are called while it is held.
+ */
+public class StreamingAliasFinder {
+
+  private final BoomerangContextFactory contextFactory;
+  private final ResultCache querycache = new ResultCache();
+  private final Map<AliasQuery, Set<Unit>> pointsToSets = new HashMap<>();
+
+  /**
+   * @param contextFactory Creates the context of every query. Its contexts store the path edges
+   *        packed, which is required to observe them.
+   */
+  public StreamingAliasFinder(BoomerangContextFactory contextFactory) {
+    this.contextFactory = contextFactory;
+    contextFactory.setPackedPathEdges(true);
+  }
+
+  /**
+   * @return The aliases of the query. If the listener stopped the query or the query ran out of
+   *         budget, the {@link PartialAliasResults} found until then.
+   */
+  public AliasResults findAliases(AliasQuery query, AliasListener listener) {
+    return solve(createAliasFinder(), query, listener);
+  }
+
+  /**
+   * Decides whether the two access graphs may point to a common allocation site at the statement.
+   * Both queries run in one context and share its summaries, so the second query reuses the
+   * methods the first one summarized. Each query starts with its own path edges and its own
+   * budget. The second query stops at the first allocation site it shares with the first one. If
+   * a query runs out of budget the answer is based on the allocation sites found until then.
+   */
+  public boolean mayAlias(AccessGraph a, AccessGraph b, Unit stmt,
+      IContextRequester contextRequester) {
+    AliasFinder finder = createAliasFinder();
+    AllocationSiteCollector sitesOfA = new AllocationSiteCollector(Integer.MAX_VALUE);
+    AliasResults resA = solve(finder, new AliasQuery(a, stmt, contextRequester), sitesOfA);
+    if (sitesOfA.allocSites.isEmpty())
+      return false;
+    // A terminated context cannot run another query
+    if (!PartialAliasResults.isComplete(resA))
+      finder = createAliasFinder();
+    CommonAllocationSiteFinder common = new CommonAllocationSiteFinder(sitesOfA.allocSites);
+    solve(finder, new AliasQuery(b, stmt, contextRequester), common);
+    return common.found;
+  }
+
+  /**
+   * @return The allocation statements the query may point to. Only the allocation sites are kept,
+   *         and they are remembered per query. Aliases without an allocation statement, e.g.
+   *         those that stem from a parameter of an entry point, are all represented by null, so
+   *         they count as one site, as in the allocation statements of Boomerang's results.
+   */
+  public Set<Unit> pointsTo(AliasQuery query) {
+    Set<Unit> res = pointsToSets.get(query);
+    if (res == null) {
+      AllocationSiteCollector collector = new AllocationSiteCollector(Integer.MAX_VALUE);
+      AliasResults aliases = solve(createAliasFinder(), query, collector);
+      res = Collections.unmodifiableSet(collector.allocSites);
+      if (PartialAliasResults.isComplete(aliases))
+        pointsToSets.put(query, res);
+    }
+    return res;
+  }
+
+  /**
+   * @return At most the given number of allocation statements the query may point to, with null
+   *         as in {@link #pointsTo(AliasQuery)}. The query stops once it found them, so e.g. a
+   *         check whether a variable points to more than one object does not compute its whole
+   *         points-to set.
+   */
+  public Set<Unit> pointsTo(AliasQuery query, int limit) {
+    Set<Unit> known = pointsToSets.get(query);
+    if (known != null && known.size() <= limit)
+      return known;
+    if (known != null)
+      return Collections.unmodifiableSet(Sets.newHashSet(Iterables.limit(known, limit)));
+    AllocationSiteCollector collector = new AllocationSiteCollector(limit);
+    solve(createAliasFinder(), query, collector);
+    return Collections.unmodifiableSet(collector.allocSites);
+  }
+
+  private AliasFinder createAliasFinder() {
+    return new AliasFinder(contextFactory.createContext(querycache));
+  }
+
+  private AliasResults solve(AliasFinder finder, AliasQuery query, AliasListener listener) {
+    ManagedBoomerangContext context = (ManagedBoomerangContext) finder.context;
+    synchronized (BoomerangLock.LOCK) {
+      // The context may have answered a query before
+      context.resetQueryState();
+      context.startTime = System.currentTimeMillis();
+      context.setAliasListener(query.getStmt(), query.getAccessGraph(), listener);
+      AliasResults res;
+      try {
+        res = finder.findAliasAtStmt(query.getAccessGraph(), query.getStmt(),
+            query.getContextRequester());
+      } catch (BoomerangTimeoutException e) {
+        return BudgetedAliasFinder.terminate(context, query);
+      }
+      context.finishQuery(false);
+      for (Pair<Unit, AccessGraph> site : res.keySet())
+        if (!context.reportAllocationSite(site))
+          break;
+      return res;
+    }
+  }
+
+  /**
+   * Allocation sites are compared by their allocation statement, the access graphs at the site
+   * differ between the two queries.
+   */
+  private static Unit allocationStmtOf(Pair<Unit, AccessGraph> allocationSite) {
+    return allocationSite.getO2().getSourceStmt();
+  }
+
+  private static class AllocationSiteCollector implements AliasListener {
+    private final Set<Unit> allocSites = new HashSet<>();
+    private final int limit;
+
+    private AllocationSiteCollector(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public boolean onAllocationSite(Pair<Unit, AccessGraph> allocationSite) {
+      allocSites.add(allocationStmtOf(allocationSite));
+      return allocSites.size() < limit;
+    }
+  }
+
+  private static class CommonAllocationSiteFinder implements AliasListener {
+    private final Set<Unit> allocSites;
+    private boolean found;
+
+    private CommonAllocationSiteFinder(Set<Unit> allocSites) {
+      this.allocSites = allocSites;
+    }
+
+    @Override
+    public boolean onAllocationSite(Pair<Unit, AccessGraph> allocationSite) {
+      Unit alloc = allocationStmtOf(allocationSite);
+      found = alloc != null && allocSites.contains(alloc);
+      return !found;
+    }
+  }
+
+  public BoomerangContextFactory getContextFactory() {
+    return contextFactory;
+  }
+}
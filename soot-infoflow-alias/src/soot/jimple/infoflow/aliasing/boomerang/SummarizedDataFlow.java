@@ -0,0 +1,170 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.accesspath.WrappedSootField;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.mock.MockedDataFlow;
+import soot.Local;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.aliasing.boomerang.LibrarySummaries.Location;
+import soot.jimple.infoflow.aliasing.boomerang.LibrarySummaries.Transfer;
+
+/**
+ * A {@link MockedDataFlow} that steps over the calls of methods with {@link LibrarySummaries}
+ * instead of analysing their bodies. At such a call a fact keeps flowing unless the call assigns
+ * its base, and every rule whose source matches the fact adds the fact moved to the target of the
+ * rule. The backward direction applies the rules from target to source. All other calls are
+ * handled by the mocker this one replaces.
+ *
+ * A call is only stepped over if every callee the call graph resolves it to is summarised, so a
+ * call that may dispatch to an application class overriding a library method is analysed as
+ * usual. The rules of all callees apply then. A call without callees in the call graph is
+ * summarised by its declared method.
+ *
+ * Objects a summarised method allocates itself, e.g. its iterators, have no allocation site.
+ */
+public class SummarizedDataFlow implements MockedDataFlow {
+
+  private final LibrarySummaries summaries;
+  private final IInfoflowCFG icfg;
+  private final MockedDataFlow fallback;
+  private final boolean forward;
+
+  /**
+   * @param icfg Resolves the callees of a call site.
+   * @param fallback Handles the calls of methods without summary.
+   * @param forward Whether the mocker is used by the forward solver.
+   */
+  public SummarizedDataFlow(LibrarySummaries summaries, IInfoflowCFG icfg,
+      MockedDataFlow fallback, boolean forward) {
+    this.summaries = summaries;
+    this.icfg = icfg;
+    this.fallback = fallback;
+    this.forward = forward;
+  }
+
+  @Override
+  public boolean flowInto(Unit callSite, AccessGraph source, InvokeExpr ie, Value[] params) {
+    // Static fields are not covered by the rules, they still flow into the callee
+    if (!source.isStatic() && summaryAt(callSite, ie) != null)
+      return false;
+    return fallback.flowInto(callSite, source, ie, params);
+  }
+
+  @Override
+  public boolean handles(Unit callSite, InvokeExpr ie, AccessGraph source, Value[] params) {
+    if (!source.isStatic() && summaryAt(callSite, ie) != null)
+      return true;
+    return fallback.handles(callSite, ie, source, params);
+  }
+
+  /**
+   * @return The rules of all callees of the call site, or null if one of them is not summarised.
+   */
+  private List<Transfer> summaryAt(Unit callSite, InvokeExpr ie) {
+    Collection<SootMethod> callees = icfg.getCalleesOfCallAt(callSite);
+    if (callees.isEmpty())
+      return summaries.summaryOf(ie.getMethod());
+    List<Transfer> res = null;
+    for (SootMethod callee : callees) {
+      List<Transfer> transfers = summaries.summaryOf(callee);
+      if (transfers == null)
+        return null;
+      if (res == null || res == transfers) {
+        res = transfers;
+      } else {
+        // Callees mostly share the rules of a common supertype, so lists are only merged rarely
+        Set<Transfer> merged = new LinkedHashSet<>(res);
+        merged.addAll(transfers);
+        res = new ArrayList<>(merged);
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public Set<AccessGraph> computeTargetsOverCall(Unit callSite, InvokeExpr ie,
+      AccessGraph source, Value[] params, IPathEdge<Unit, AccessGraph> edge) {
+    if (source.isStatic())
+      return fallback.computeTargetsOverCall(callSite, ie, source, params, edge);
+    List<Transfer> transfers = summaryAt(callSite, ie);
+    if (transfers == null)
+      return fallback.computeTargetsOverCall(callSite, ie, source, params, edge);
+    Local assigned = null;
+    if (callSite instanceof AssignStmt && ((AssignStmt) callSite).getLeftOp() instanceof Local)
+      assigned = (Local) ((AssignStmt) callSite).getLeftOp();
+    if (transfers.isEmpty())
+      return source.getBase() == assigned ? Collections.<AccessGraph>emptySet()
+          : Collections.singleton(source);
+    Set<AccessGraph> res = new HashSet<>();
+    if (source.getBase() != assigned)
+      res.add(source);
+    for (Transfer t : transfers) {
+      if (forward)
+        move(source, t.from, t.to, callSite, ie, assigned, res);
+      else
+        move(source, t.to, t.from, callSite, ie, assigned, res);
+    }
+    return res;
+  }
+
+  /**
+   * Adds the fact moved from one location to the other if it lies at the first one.
+   */
+  private void move(AccessGraph source, Location from, Location to, Unit callSite,
+      InvokeExpr ie, Local assigned, Set<AccessGraph> res) {
+    Local fromLocal = localOf(from, ie, assigned);
+    Local toLocal = localOf(to, ie, assigned);
+    if (fromLocal == null || toLocal == null || source.getBase() != fromLocal)
+      return;
+    Set<AccessGraph> moved;
+    Type type;
+    if (from.field == null) {
+      moved = Collections.singleton(source);
+      type = source.getBaseType();
+    } else if (source.firstFieldMatches(from.field)) {
+      moved = source.popFirstField();
+      type = source.getFirstField().getType();
+    } else {
+      return;
+    }
+    for (AccessGraph g : moved) {
+      if (to.field == null)
+        res.add(g.deriveWithNewLocal(toLocal, type));
+      else
+        res.add(g.deriveWithNewLocal(toLocal, toLocal.getType())
+            .prependField(new WrappedSootField(to.field, type, callSite)));
+    }
+  }
+
+  private static Local localOf(Location location, InvokeExpr ie, Local assigned) {
+    if (location.value == Location.RETURN)
+      return assigned;
+    Value v;
+    if (location.value == Location.THIS) {
+      if (!(ie instanceof InstanceInvokeExpr))
+        return null;
+      v = ((InstanceInvokeExpr) ie).getBase();
+    } else {
+      if (location.value >= ie.getArgCount())
+        return null;
+      v = ie.getArg(location.value);
+    }
+    return v instanceof Local ? (Local) v : null;
+  }
+}
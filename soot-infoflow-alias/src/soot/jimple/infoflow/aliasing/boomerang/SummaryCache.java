@@ -0,0 +1,142 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * End summaries that outlive single queries but never exceed a fixed budget. Summaries are keyed
+ * by method and start node, the weight of an entry is the number of end edges it holds. When the
+ * total weight exceeds the maximum, the least recently used entries are evicted; an evicted
+ * summary is simply recomputed by the next query that needs it.
+ *
+ * Hit, miss and eviction counters are recorded so that the budget can be tuned to the size of the
+ * analyzed application.
+ *
+ * Entries must only be added between queries. An evicted summary of a running query would lose
+ * return flows: the query already processed the callee, so a caller that arrives after the
+ * eviction finds neither a summary nor new path edges in the callee. Contexts therefore use the
+ * cache through {@link BufferedSummaries}, which holds the summaries of the running query and
+ * adds them when the query completed. {@link ManagedBoomerangContext} wraps a cache it is given
+ * directly.
+ */
+public class SummaryCache implements InvalidatableSummaries {
+
+  private final SummaryFilter filter;
+  private final AccessGraphInterner interner;
+  private final Cache<Pair<SootMethod, Pair<Unit, AccessGraph>>, Set<IPathEdge<Unit, AccessGraph>>> cache;
+
+  private static class SummaryWeigher implements
+      Weigher<Pair<SootMethod, Pair<Unit, AccessGraph>>, Set<IPathEdge<Unit, AccessGraph>>> {
+    @Override
+    public int weigh(Pair<SootMethod, Pair<Unit, AccessGraph>> key,
+        Set<IPathEdge<Unit, AccessGraph>> value) {
+      return Math.max(1, value.size());
+    }
+  }
+
+  /**
+   * @param maximumWeight The maximal number of end edges kept in the cache.
+   */
+  public SummaryCache(IInfoflowCFG icfg, long maximumWeight) {
+    this(icfg, maximumWeight, new AccessGraphInterner());
+  }
+
+  /**
+   * @param maximumWeight The maximal number of end edges kept in the cache.
+   * @param interner Canonicalizes the facts of cached summaries.
+   */
+  public SummaryCache(IInfoflowCFG icfg, long maximumWeight, AccessGraphInterner interner) {
+    this.filter = new SummaryFilter(icfg);
+    this.interner = interner;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maximumWeight)
+        .weigher(new SummaryWeigher()).recordStats().build();
+  }
+
+  @Override
+  public void addEndSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+    if (!filter.storeAsSummary(m, edge))
+      return;
+    edge = interner.intern(edge);
+    Pair<SootMethod, Pair<Unit, AccessGraph>> key =
+        new Pair<SootMethod, Pair<Unit, AccessGraph>>(m, edge.getStartNode());
+    // Writes go through the map view, which does not count as hit or miss
+    Set<IPathEdge<Unit, AccessGraph>> summaries = cache.asMap().get(key);
+    if (summaries == null) {
+      summaries = new ConcurrentHashSet<IPathEdge<Unit, AccessGraph>>();
+      Set<IPathEdge<Unit, AccessGraph>> old = cache.asMap().putIfAbsent(key, summaries);
+      if (old != null)
+        summaries = old;
+    }
+    // The weight of an entry is only computed on insertion, re-insert to account for the new edge
+    if (summaries.add(edge))
+      cache.put(key, summaries);
+  }
+
+  @Override
+  public Collection<IPathEdge<Unit, AccessGraph>> endSummary(SootMethod m,
+      Pair<Unit, AccessGraph> startNode) {
+    Set<IPathEdge<Unit, AccessGraph>> summaries =
+        cache.getIfPresent(new Pair<SootMethod, Pair<Unit, AccessGraph>>(m, startNode));
+    if (summaries == null)
+      return Collections.emptySet();
+    return summaries;
+  }
+
+  @Override
+  public void invalidate(Collection<SootMethod> methods) {
+    Set<SootMethod> invalid = methods instanceof Set ? (Set<SootMethod>) methods
+        : new HashSet<>(methods);
+    Iterator<Pair<SootMethod, Pair<Unit, AccessGraph>>> it = cache.asMap().keySet().iterator();
+    while (it.hasNext())
+      if (invalid.contains(it.next().getO1()))
+        it.remove();
+  }
+
+  @Override
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  @Override
+  public String toString() {
+    CacheStats stats = cache.stats();
+    return "SummaryCache[entries=" + cache.size() + ", hits=" + stats.hitCount() + ", misses="
+        + stats.missCount() + ", evictions=" + stats.evictionCount() + "]";
+  }
+}
@@ -0,0 +1,282 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import boomerang.AliasFinder;
+import boomerang.accesspath.AccessGraph;
+import boomerang.accesspath.WrappedSootField;
+import boomerang.backward.BackwardEdge;
+import boomerang.ifdssolver.IPathEdge;
+import boomerang.ifdssolver.PathEdge;
+import soot.Local;
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Translates the end summaries of one method to bytes and back. Statements are encoded by their
+ * position in the body, locals by name, fields by signature and types by name, so the encoding
+ * only stays valid for an identical body. Since a summary also covers the effect of the callees,
+ * a record is keyed by the bodies and call edges of all transitive callees as well, see
+ * {@link #localHash(SootMethod, IInfoflowCFG)}.
+ *
+ * Boomerang does not expose the field graph of an access graph, only its representative field
+ * sequence. An edge can therefore only be encoded if decoding it yields an equal edge again. A
+ * record without one of its edges would make the solver miss flows, so the summaries of a method
+ * are only encoded if all of their edges can be.
+ */
+class SummaryCodec {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final byte FORWARD_EDGE = 0;
+  private static final byte BACKWARD_EDGE = 1;
+
+  /**
+   * Thrown while decoding if the scene does not contain a local, field or type of the encoding.
+   */
+  static class UnresolvableException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    UnresolvableException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * @return A hash of the signature and the Jimple body of the method and of the callees of each
+   *         of its call sites.
+   */
+  static long localHash(SootMethod m, IInfoflowCFG icfg) {
+    long hash = m.getSignature().hashCode();
+    if (!m.hasActiveBody())
+      return hash;
+    for (Unit u : m.getActiveBody().getUnits()) {
+      hash = hash * 1000003 + u.toString().hashCode();
+      if (!icfg.isCallStmt(u))
+        continue;
+      // The order of the callees is not stable between runs
+      long callees = 0;
+      for (SootMethod callee : icfg.getCalleesOfCallAt(u))
+        callees += callee.getSignature().hashCode();
+      hash = hash * 1000003 + callees;
+    }
+    return hash;
+  }
+
+  /**
+   * @return The encoded edges, or null if there are none or one of them cannot be encoded.
+   */
+  static byte[] encode(SootMethod m, Collection<IPathEdge<Unit, AccessGraph>> edges)
+      throws IOException {
+    if (!m.hasActiveBody())
+      return null;
+    Map<Unit, Integer> unitToIndex = new IdentityHashMap<>();
+    List<Unit> units = new ArrayList<>(m.getActiveBody().getUnits());
+    for (int i = 0; i < units.size(); i++)
+      unitToIndex.put(units.get(i), i);
+
+    ByteArrayOutputStream edgeBytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(edgeBytes);
+    int count = 0;
+    for (IPathEdge<Unit, AccessGraph> edge : edges) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream edgeOut = new DataOutputStream(bytes);
+      if (!writeEdge(edgeOut, edge, unitToIndex))
+        return null;
+      edgeOut.flush();
+      // Only keep records whose edges all survive a round trip
+      try {
+        if (!edge.equals(readEdge(ByteBuffer.wrap(bytes.toByteArray()), m, units)))
+          return null;
+      } catch (UnresolvableException | RuntimeException e) {
+        return null;
+      }
+      bytes.writeTo(out);
+      count++;
+    }
+    if (count == 0)
+      return null;
+    out.flush();
+    ByteArrayOutputStream res = new ByteArrayOutputStream();
+    DataOutputStream resOut = new DataOutputStream(res);
+    resOut.writeInt(count);
+    edgeBytes.writeTo(resOut);
+    resOut.flush();
+    return res.toByteArray();
+  }
+
+  /**
+   * Decodes a record that spans the remaining bytes of the buffer.
+   *
+   * @throws UnresolvableException If the record does not fit the method or the scene, or if it is
+   *         malformed. None of its edges may be used then.
+   */
+  static List<IPathEdge<Unit, AccessGraph>> decode(SootMethod m, ByteBuffer in)
+      throws UnresolvableException {
+    if (!m.hasActiveBody())
+      throw new UnresolvableException("No body of " + m);
+    List<Unit> units = new ArrayList<>(m.getActiveBody().getUnits());
+    try {
+      int count = in.getInt();
+      if (count < 0)
+        throw new UnresolvableException("Malformed record of " + m);
+      List<IPathEdge<Unit, AccessGraph>> res = new ArrayList<>();
+      for (int i = 0; i < count; i++)
+        res.add(readEdge(in, m, units));
+      if (in.hasRemaining())
+        throw new UnresolvableException("Malformed record of " + m);
+      return res;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new UnresolvableException("Malformed record of " + m);
+    }
+  }
+
+  private static boolean writeEdge(DataOutputStream out, IPathEdge<Unit, AccessGraph> edge,
+      Map<Unit, Integer> unitToIndex) throws IOException {
+    Integer start = unitToIndex.get(edge.getStart());
+    Integer target = unitToIndex.get(edge.getTarget());
+    if (start == null || target == null)
+      return false;
+    if (edge.getClass() == PathEdge.class)
+      out.writeByte(FORWARD_EDGE);
+    else if (edge.getClass() == BackwardEdge.class)
+      out.writeByte(BACKWARD_EDGE);
+    else
+      return false;
+    out.writeInt(start);
+    if (!writeFact(out, edge.factAtSource(), unitToIndex))
+      return false;
+    out.writeInt(target);
+    return writeFact(out, edge.factAtTarget(), unitToIndex);
+  }
+
+  private static IPathEdge<Unit, AccessGraph> readEdge(ByteBuffer in, SootMethod m,
+      List<Unit> units) throws UnresolvableException {
+    byte kind = in.get();
+    Unit start = units.get(in.getInt());
+    AccessGraph source = readFact(in, m, units);
+    Unit target = units.get(in.getInt());
+    AccessGraph fact = readFact(in, m, units);
+    if (kind == FORWARD_EDGE)
+      return new PathEdge<Unit, AccessGraph>(start, source, target, fact);
+    if (kind == BACKWARD_EDGE)
+      return new BackwardEdge(start, source, target, fact);
+    throw new UnresolvableException("Unknown edge kind " + kind);
+  }
+
+  private static boolean writeFact(DataOutputStream out, AccessGraph g,
+      Map<Unit, Integer> unitToIndex) throws IOException {
+    writeString(out, g.getBase() == null ? null : g.getBase().getName());
+    writeString(out, g.getBaseType() == null ? null : g.getBaseType().toString());
+    if (g.hasAllocationSite()) {
+      Integer site = unitToIndex.get(g.getSourceStmt());
+      if (site == null)
+        return false;
+      out.writeInt(site);
+    } else {
+      out.writeInt(-1);
+    }
+    WrappedSootField[] fields = g.getFieldCount() == 0 ? null : g.getRepresentative();
+    out.writeInt(fields == null ? 0 : fields.length);
+    if (fields == null)
+      return true;
+    for (WrappedSootField f : fields) {
+      writeString(out, f.getField().getSignature());
+      writeString(out, f.getType() == null ? null : f.getType().toString());
+      if (f.getStmt() == null) {
+        out.writeInt(-1);
+      } else {
+        Integer stmt = unitToIndex.get(f.getStmt());
+        if (stmt == null)
+          return false;
+        out.writeInt(stmt);
+      }
+    }
+    return true;
+  }
+
+  private static AccessGraph readFact(ByteBuffer in, SootMethod m, List<Unit> units)
+      throws UnresolvableException {
+    Local base = findLocal(m, readString(in));
+    Type baseType = findType(readString(in));
+    int site = in.getInt();
+    int fieldCount = in.getInt();
+    if (fieldCount < 0 || fieldCount > in.remaining())
+      throw new UnresolvableException("Malformed fact in " + m);
+    WrappedSootField[] fields = new WrappedSootField[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      SootField f = findField(readString(in));
+      Type type = findType(readString(in));
+      int stmt = in.getInt();
+      fields[i] = new WrappedSootField(f, type, stmt < 0 ? null : units.get(stmt));
+    }
+    AccessGraph g = fieldCount == 0 ? new AccessGraph(base, baseType)
+        : new AccessGraph(base, baseType, fields);
+    return site < 0 ? g : g.deriveWithAllocationSite(units.get(site));
+  }
+
+  private static Local findLocal(SootMethod m, String name) throws UnresolvableException {
+    if (name == null)
+      return null;
+    for (Local l : m.getActiveBody().getLocals())
+      if (l.getName().equals(name))
+        return l;
+    throw new UnresolvableException("No local " + name + " in " + m);
+  }
+
+  private static SootField findField(String signature) throws UnresolvableException {
+    // The artificial array field is not part of the scene
+    if (signature.equals(AliasFinder.ARRAY_FIELD.getSignature()))
+      return AliasFinder.ARRAY_FIELD;
+    try {
+      return Scene.v().getField(signature);
+    } catch (RuntimeException e) {
+      throw new UnresolvableException("No field " + signature);
+    }
+  }
+
+  private static Type findType(String name) throws UnresolvableException {
+    if (name == null)
+      return null;
+    try {
+      return Scene.v().getType(name);
+    } catch (RuntimeException e) {
+      throw new UnresolvableException("No type " + name);
+    }
+  }
+
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0)
+      return null;
+    if (length > in.remaining())
+      throw new BufferUnderflowException();
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, UTF8);
+  }
+}
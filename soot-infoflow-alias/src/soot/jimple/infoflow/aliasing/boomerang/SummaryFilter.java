@@ -0,0 +1,50 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import soot.Local;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.ReturnStmt;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Decides which end summaries are worth storing, exactly as {@link boomerang.bidi.Summaries}
+ * does: an edge is kept if its fact is static or rooted in a parameter, the this local or a
+ * returned local. Those facts do not depend on the query that produced them, which is what makes
+ * sharing summaries between queries sound.
+ */
+class SummaryFilter {
+
+  private final IInfoflowCFG icfg;
+
+  SummaryFilter(IInfoflowCFG icfg) {
+    this.icfg = icfg;
+  }
+
+  boolean storeAsSummary(SootMethod m, IPathEdge<Unit, AccessGraph> edge) {
+    AccessGraph fact = edge.factAtTarget();
+    if (fact.isStatic())
+      return true;
+    Local base = fact.getBase();
+    return isParameterOrThisValue(m, base) || isReturnValue(m, base);
+  }
+
+  private boolean isParameterOrThisValue(SootMethod m, Local l) {
+    if (m.getActiveBody().getParameterLocals().contains(l))
+      return true;
+    return !m.isStatic() && m.getActiveBody().getThisLocal().equals(l);
+  }
+
+  private boolean isReturnValue(SootMethod m, Local l) {
+    for (Unit u : icfg.getEndPointsOf(m)) {
+      if (u instanceof ReturnStmt) {
+        Value op = ((ReturnStmt) u).getOp();
+        if (op.equals(l))
+          return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,54 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Makes an {@link IInfoflowCFG} safe to share between threads, e.g. between Boomerang queries and
+ * the threads of the FlowDroid solver. The queries themselves do not run concurrently, see
+ * {@link BoomerangLock}.
+ *
+ * The control-flow part of the InfoflowCFG is backed by concurrent caches, but the field
+ * pre-analysis behind {@link #writesToField(SootMethod, SootField)},
+ * {@link #accessesField(SootMethod, SootField)} and
+ * {@link #containsAllocSiteOfType(SootMethod, Type)} fills a plain map on a cache miss. Those
+ * lookups are therefore serialized, everything else is forwarded unchanged.
+ */
+public class ThreadSafeInfoflowCFG extends DelegatingInfoflowCFG {
+
+  private final Object preanalysisLock = new Object();
+
+  public ThreadSafeInfoflowCFG(IInfoflowCFG delegate) {
+    super(delegate);
+  }
+
+  @Override
+  public boolean containsAllocSiteOfType(SootMethod m, Type t) {
+    synchronized (preanalysisLock) {
+      return delegate.containsAllocSiteOfType(m, t);
+    }
+  }
+
+  @Override
+  public boolean accessesField(SootMethod m, SootField f) {
+    synchronized (preanalysisLock) {
+      return delegate.accessesField(m, f);
+    }
+  }
+
+  @Override
+  public boolean writesToField(SootMethod m, SootField f) {
+    synchronized (preanalysisLock) {
+      return delegate.writesToField(m, f);
+    }
+  }
+
+  @Override
+  public void notifyMethodChanged(SootMethod m) {
+    synchronized (preanalysisLock) {
+      delegate.notifyMethodChanged(m);
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package soot.jimple.infoflow.aliasing.boomerang;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import heros.solver.Pair;
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.NewExpr;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.util.QueueReader;
+
+/**
+ * Answers the same questions as Boomerang's {@code FieldPreanalysis}: does a method, or any method
+ * transitively called by it, read or write a field or allocate an object of a type. The facts of
+ * a single method are bitsets over a field and a type numbering. The transitive facts are computed
+ * bottom-up over the strongly connected components of the call graph, all methods of a component
+ * share one set of bitsets, and every component is only closed once instead of walking the
+ * reachable methods again for each method.
+ *
+ * The facts of single methods are either computed eagerly and in parallel by
+ * {@link #computeAll(int)}, or lazily when a method is first asked about. All queries are
+ * thread-safe.
+ */
+public class TransitiveFieldPreanalysis {
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private static final MethodFacts NO_FACTS = new MethodFacts();
+
+  private final ConcurrentNumbering<SootField> fieldNumbering = new ConcurrentNumbering<>();
+  private final ConcurrentNumbering<Type> typeNumbering = new ConcurrentNumbering<>();
+  private final ConcurrentHashMap<SootMethod, MethodFacts> localFacts = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<SootMethod, MethodFacts> closures = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Pair<SootMethod, Type>, Boolean> allocCache =
+      new ConcurrentHashMap<>();
+  private final Object closureLock = new Object();
+
+  /**
+   * Fields read, fields written and types allocated, by a method or by a component of the call
+   * graph. The sets are not modified once the facts are published.
+   */
+  private static class MethodFacts {
+    private final BitSet reads = new BitSet();
+    private final BitSet writes = new BitSet();
+    private final BitSet allocs = new BitSet();
+
+    private void addAll(MethodFacts other) {
+      reads.or(other.reads);
+      writes.or(other.writes);
+      allocs.or(other.allocs);
+    }
+  }
+
+  /**
+   * Computes the facts of all reachable methods on the given number of threads, and then their
+   * transitive closure.
+   */
+  public void computeAll(int numThreads) {
+    long before = System.currentTimeMillis();
+    List<SootMethod> methods = new ArrayList<>();
+    QueueReader<MethodOrMethodContext> listener = Scene.v().getReachableMethods().listener();
+    while (listener.hasNext()) {
+      SootMethod m = listener.next().method();
+      if (m != null)
+        methods.add(m);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      int chunk = Math.max(1, methods.size() / (numThreads * 4));
+      for (int from = 0; from < methods.size(); from += chunk) {
+        int to = Math.min(methods.size(), from + chunk);
+        final List<SootMethod> part = methods.subList(from, to);
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            for (SootMethod m : part)
+              getLocalFacts(m);
+          }
+        }));
+      }
+      for (Future<?> f : futures)
+        f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while computing the field pre-analysis", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Field pre-analysis failed", e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+
+    for (SootMethod m : methods)
+      getClosure(m);
+    logger.info("Field pre-analysis of {} methods took {} ms", methods.size(),
+        System.currentTimeMillis() - before);
+  }
+
+  // The closure numbers the fields of all methods it visits, so it is computed before the field is
+  // looked up. A field without a number afterwards is not accessed by any of the methods.
+
+  public boolean writesToField(SootMethod m, SootField f) {
+    MethodFacts facts = getClosure(m);
+    int field = fieldNumbering.get(f);
+    return field >= 0 && facts.writes.get(field);
+  }
+
+  public boolean readsFromField(SootMethod m, SootField f) {
+    MethodFacts facts = getClosure(m);
+    int field = fieldNumbering.get(f);
+    return field >= 0 && facts.reads.get(field);
+  }
+
+  public boolean accessesField(SootMethod m, SootField f) {
+    MethodFacts facts = getClosure(m);
+    int field = fieldNumbering.get(f);
+    return field >= 0 && (facts.reads.get(field) || facts.writes.get(field));
+  }
+
+  /**
+   * @return Whether the method or one of its transitive callees allocates an object that can be
+   *         stored in a variable of the given type.
+   */
+  public boolean containsAllocSiteOfType(SootMethod m, Type t) {
+    Pair<SootMethod, Type> key = new Pair<>(m, t);
+    Boolean res = allocCache.get(key);
+    if (res == null) {
+      res = false;
+      BitSet allocs = getClosure(m).allocs;
+      for (int i = allocs.nextSetBit(0); i >= 0 && !res; i = allocs.nextSetBit(i + 1))
+        res = Scene.v().getFastHierarchy().canStoreType(typeNumbering.get(i), t);
+      allocCache.put(key, res);
+    }
+    return res;
+  }
+
+  /**
+   * Forgets the facts of the given method and all transitive facts, which may include them.
+   */
+  public void invalidate(SootMethod m) {
+    synchronized (closureLock) {
+      localFacts.remove(m);
+      closures.clear();
+      allocCache.clear();
+    }
+  }
+
+  private MethodFacts getLocalFacts(SootMethod m) {
+    MethodFacts facts = localFacts.get(m);
+    if (facts == null) {
+      facts = computeLocalFacts(m);
+      MethodFacts old = localFacts.putIfAbsent(m, facts);
+      if (old != null)
+        facts = old;
+    }
+    return facts;
+  }
+
+  private MethodFacts computeLocalFacts(SootMethod m) {
+    if (!m.hasActiveBody() || isIgnoredMethod(m))
+      return NO_FACTS;
+    MethodFacts facts = new MethodFacts();
+    for (Unit u : m.getActiveBody().getUnits()) {
+      if (!(u instanceof AssignStmt))
+        continue;
+      AssignStmt as = (AssignStmt) u;
+      Value leftOp = as.getLeftOp();
+      if (leftOp instanceof InstanceFieldRef)
+        facts.writes.set(numberOf(((InstanceFieldRef) leftOp).getField()));
+      Value rightOp = as.getRightOp();
+      if (rightOp instanceof InstanceFieldRef)
+        facts.reads.set(numberOf(((InstanceFieldRef) rightOp).getField()));
+      if (rightOp instanceof NewExpr)
+        facts.allocs.set(typeNumbering.add(rightOp.getType()));
+    }
+    return facts;
+  }
+
+  private int numberOf(SootField f) {
+    return fieldNumbering.add(f);
+  }
+
+  /**
+   * Same methods as those skipped by Boomerang's pre-analysis. Their callees are still visited.
+   */
+  private boolean isIgnoredMethod(SootMethod m) {
+    String s = m.toString();
+    return s.contains("int hashCode()") || s.contains("java.lang.Object equals(java.lang.Object)")
+        || s.contains("toString()");
+  }
+
+  /**
+   * The call edges followed by Boomerang's pre-analysis.
+   */
+  private List<SootMethod> getCallees(SootMethod m) {
+    List<SootMethod> callees = new ArrayList<>();
+    Iterator<Edge> it = Scene.v().getCallGraph().edgesOutOf(m);
+    while (it.hasNext()) {
+      Edge e = it.next();
+      Kind k = e.kind();
+      if ((k.isExplicit() || k.isThread() || k.isExecutor() || k.isAsyncTask()
+          || k.isPrivileged()) && e.tgt() != null)
+        callees.add(e.tgt());
+    }
+    return callees;
+  }
+
+  private MethodFacts getClosure(SootMethod m) {
+    MethodFacts facts = closures.get(m);
+    if (facts != null)
+      return facts;
+    synchronized (closureLock) {
+      facts = closures.get(m);
+      if (facts == null) {
+        closeComponentsFrom(m);
+        facts = closures.get(m);
+      }
+      return facts;
+    }
+  }
+
+  /**
+   * A method on the depth-first search stack of {@link #closeComponentsFrom(SootMethod)}.
+   */
+  private static class Frame {
+    private final SootMethod method;
+    private final List<SootMethod> callees;
+    private int next;
+
+    private Frame(SootMethod method, List<SootMethod> callees) {
+      this.method = method;
+      this.callees = callees;
+    }
+  }
+
+  /**
+   * Tarjan's algorithm, iterative to not overflow the stack on deep call chains. Components are
+   * completed callees first, so the closure of a component only unions the facts of its members
+   * and the closures of the components it calls. Components closed by earlier runs are not
+   * entered again.
+   */
+  private void closeComponentsFrom(SootMethod root) {
+    Map<SootMethod, Integer> index = new HashMap<>();
+    Map<SootMethod, Integer> lowlink = new HashMap<>();
+    LinkedList<SootMethod> componentStack = new LinkedList<>();
+    Set<SootMethod> onStack = new HashSet<>();
+    LinkedList<Frame> dfsStack = new LinkedList<>();
+    Map<SootMethod, List<SootMethod>> calleesOf = new HashMap<>();
+
+    index.put(root, 0);
+    lowlink.put(root, 0);
+    componentStack.push(root);
+    onStack.add(root);
+    calleesOf.put(root, getCallees(root));
+    dfsStack.push(new Frame(root, calleesOf.get(root)));
+
+    while (!dfsStack.isEmpty()) {
+      Frame frame = dfsStack.peek();
+      SootMethod m = frame.method;
+      if (frame.next < frame.callees.size()) {
+        SootMethod callee = frame.callees.get(frame.next++);
+        if (closures.containsKey(callee))
+          continue;
+        Integer calleeIndex = index.get(callee);
+        if (calleeIndex == null) {
+          int i = index.size();
+          index.put(callee, i);
+          lowlink.put(callee, i);
+          componentStack.push(callee);
+          onStack.add(callee);
+          calleesOf.put(callee, getCallees(callee));
+          dfsStack.push(new Frame(callee, calleesOf.get(callee)));
+        } else if (onStack.contains(callee)) {
+          lowlink.put(m, Math.min(lowlink.get(m), calleeIndex));
+        }
+        continue;
+      }
+
+      dfsStack.pop();
+      if (!dfsStack.isEmpty()) {
+        SootMethod caller = dfsStack.peek().method;
+        lowlink.put(caller, Math.min(lowlink.get(caller), lowlink.get(m)));
+      }
+      if (!lowlink.get(m).equals(index.get(m)))
+        continue;
+
+      Set<SootMethod> members = new HashSet<>();
+      SootMethod member;
+      do {
+        member = componentStack.pop();
+        onStack.remove(member);
+        members.add(member);
+      } while (member != m);
+      MethodFacts facts = new MethodFacts();
+      for (SootMethod c : members) {
+        facts.addAll(getLocalFacts(c));
+        for (SootMethod callee : calleesOf.get(c))
+          if (!members.contains(callee))
+            facts.addAll(closures.get(callee));
+      }
+      for (SootMethod c : members)
+        closures.put(c, facts);
+    }
+  }
+
+  /**
+   * @return The number of methods whose transitive facts are known.
+   */
+  public int size() {
+    return closures.size();
+  }
+}
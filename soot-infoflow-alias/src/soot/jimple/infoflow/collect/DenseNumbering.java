@@ -0,0 +1,104 @@
+package soot.jimple.infoflow.collect;
+
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive int numbers, starting at 0, to objects. Objects are
+ * compared using equals(). The mapping is kept in two parallel arrays, so
+ * looking up an already numbered object does not allocate. Not thread-safe.
+ */
+public class DenseNumbering<T> {
+    private Object[] keys;
+    private int[] numbers;
+    private Object[] objects;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public DenseNumbering() {
+        allocate(16);
+        objects = new Object[16];
+    }
+
+    private void allocate(int tableSize) {
+        keys = new Object[tableSize];
+        numbers = new int[tableSize];
+        mask = tableSize - 1;
+        resizeAt = (int) (tableSize * 0.75);
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the number of the given object
+     * @param o The object to look up
+     * @return The number of the object, or -1 if it has not been numbered yet
+     */
+    public int get(T o) {
+        int slot = mix(o.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot] == o || keys[slot].equals(o))
+                return numbers[slot];
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of the given object, assigning the next free number if
+     * the object has not been numbered yet
+     * @param o The object to look up
+     * @return The number of the object
+     */
+    public int getOrAdd(T o) {
+        int slot = mix(o.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot] == o || keys[slot].equals(o))
+                return numbers[slot];
+            slot = (slot + 1) & mask;
+        }
+        int number = size;
+        keys[slot] = o;
+        numbers[slot] = number;
+        if (number == objects.length)
+            objects = Arrays.copyOf(objects, number << 1);
+        objects[number] = o;
+        if (++size > resizeAt)
+            rehash();
+        return number;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getObject(int number) {
+        return (T) objects[number];
+    }
+
+    private void rehash() {
+        Object[] oldKeys = keys;
+        int[] oldNumbers = numbers;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            int slot = mix(oldKeys[i].hashCode()) & mask;
+            while (keys[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            numbers[slot] = oldNumbers[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(objects, null);
+        size = 0;
+    }
+
+}
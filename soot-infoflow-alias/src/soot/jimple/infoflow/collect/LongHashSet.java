@@ -0,0 +1,108 @@
+package soot.jimple.infoflow.collect;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs based on open addressing with linear probing. No
+ * object is allocated per element, the set only grows its backing array. Not
+ * thread-safe.
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private boolean containsEmptyKey;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Math.max(4, (int) Math.ceil(expectedSize / 0.75));
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        mask = tableSize - 1;
+        resizeAt = (int) (tableSize * 0.75);
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Adds the given key to the set
+     * @param key The key to add
+     * @return True if the key was not contained in the set before, otherwise
+     * false
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey)
+                return false;
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > resizeAt)
+            rehash();
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY)
+            return containsEmptyKey;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key)
+                return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        allocate(oldKeys.length << 1);
+        for (long key : oldKeys) {
+            if (key == EMPTY)
+                continue;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmptyKey = false;
+        size = 0;
+    }
+
+}
@@ -0,0 +1,97 @@
+package soot.jimple.infoflow.collect;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive longs to primitive ints based on open addressing with
+ * linear probing. No object is allocated per entry. Not thread-safe.
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private boolean containsEmptyKey;
+    private int emptyKeyValue;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongIntHashMap() {
+        allocate(16);
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        values = new int[tableSize];
+        mask = tableSize - 1;
+        resizeAt = (int) (tableSize * 0.75);
+    }
+
+    /**
+     * Gets the value associated with the given key
+     * @param key The key to look up
+     * @param defaultValue The value to return if the key is not mapped
+     * @return The value associated with the key, or the default value if there
+     * is none
+     */
+    public int get(long key, int defaultValue) {
+        if (key == EMPTY)
+            return containsEmptyKey ? emptyKeyValue : defaultValue;
+        int slot = LongHashSet.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey)
+                size++;
+            containsEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+        int slot = LongHashSet.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt)
+            rehash();
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY)
+                continue;
+            int slot = LongHashSet.mix(oldKeys[i]) & mask;
+            while (keys[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmptyKey = false;
+        size = 0;
+    }
+
+}
@@ -37,6 +37,7 @@ import soot.jimple.infoflow.collect.MyConcurrentHashMap;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler;
+import soot.jimple.infoflow.handlers.TaintPropagationHandler.FlowFunctionType;
 import soot.jimple.infoflow.nativ.DefaultNativeCallHandler;
 import soot.jimple.infoflow.nativ.NativeCallHandler;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
@@ -405,6 +406,32 @@ public abstract class AbstractInfoflowProblem extends DefaultJimpleIFDSTabulatio
 		this.taintPropagationHandlers.add(handler);
 	}
 	
+	/**
+	 * Notifies the outbound flow handlers, if any, about the computed
+	 * result abstractions for the current flow function
+	 * @param d1 The abstraction at the beginning of the method
+	 * @param stmt The statement that has just been processed
+	 * @param incoming The incoming abstraction from which the outbound
+	 * ones were computed
+	 * @param outgoing The outbound abstractions to be propagated on
+	 * @param functionType The type of flow function that was computed
+	 * @return The outbound flow abstracions, potentially changed by the
+	 * flow handlers
+	 */
+	public Set<Abstraction> notifyOutFlowHandlers(Unit stmt,
+			Abstraction d1,
+			Abstraction incoming,
+			Set<Abstraction> outgoing,
+			FlowFunctionType functionType) {
+		if (taintPropagationHandlers != null
+				&& outgoing != null
+				&& !outgoing.isEmpty())
+			for (TaintPropagationHandler tp : taintPropagationHandlers)
+				outgoing = tp.notifyFlowOut(stmt, d1, incoming, outgoing,
+						interproceduralCFG(), functionType);
+		return outgoing;
+	}
+	
 	/**
 	 * Builds a new array of the given type if it is a base type or increments
 	 * the dimensions of the given array by 1 otherwise.
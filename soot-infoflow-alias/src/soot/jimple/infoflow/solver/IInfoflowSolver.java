@@ -8,6 +8,7 @@ import java.util.Set;
 import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
 
 public interface IInfoflowSolver {
 
@@ -48,4 +49,29 @@ public interface IInfoflowSolver {
 
   public Abstraction getZeroValue();
 
+  /**
+   * Announces work that runs outside the solver's executor and may schedule edges with
+   * {@link #processEdge(PathEdge)}, e.g. an asynchronous alias query. The solver does not finish
+   * before every call has been matched by a call to {@link #endExternalWork()}.
+   */
+  public void beginExternalWork();
+
+  /**
+   * Ends work announced by {@link #beginExternalWork()}. The edges of the work must have been
+   * scheduled before.
+   */
+  public void endExternalWork();
+
+  /**
+   * Reports that work announced by {@link #beginExternalWork()} failed. The solver stops and fails
+   * like after an exception in one of its own tasks, since the edges of the work are missing. The
+   * work must still be ended with {@link #endExternalWork()}.
+   */
+  public void failExternalWork(Throwable failure);
+
+  /**
+   * @return The problem whose flow functions the solver computes.
+   */
+  public AbstractInfoflowProblem getTabulationProblem();
+
 }
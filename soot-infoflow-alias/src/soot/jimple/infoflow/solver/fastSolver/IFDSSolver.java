@@ -33,6 +33,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -114,6 +115,11 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	@DontSynchronize("readOnly")
 	private boolean enableMergePointChecking = false;
 	
+	@SynchronizedBy("consistent lock on 'externalWorkLock'")
+	private int externalWork = 0;
+	
+	private final Object externalWorkLock = new Object();
+	
 	/**
 	 * Creates a solver for the given problem, which caches flow functions and edge functions.
 	 * The solver must then be started by calling {@link #solve()}.
@@ -207,6 +213,10 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	private void runExecutorAndAwaitCompletion() {
 		try {
 			executor.awaitCompletion();
+			// Work outside the executor may still schedule edges, wait for it
+			// and then for the edges it scheduled
+			while (awaitExternalWork())
+				executor.awaitCompletion();
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
@@ -216,6 +226,60 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		}
 	}
 
+	/**
+	 * Tells the solver that work running outside its executor may still
+	 * schedule edges. The solver does not finish before every call has been
+	 * matched by a call to {@link #endExternalWork()}.
+	 */
+	public void beginExternalWork() {
+		synchronized (externalWorkLock) {
+			externalWork++;
+		}
+	}
+	
+	/**
+	 * Ends work announced by {@link #beginExternalWork()}. Edges the work
+	 * schedules must be scheduled before this method is called.
+	 */
+	public void endExternalWork() {
+		synchronized (externalWorkLock) {
+			externalWork--;
+			externalWorkLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Fails the solver because work announced by {@link #beginExternalWork()}
+	 * failed. The failure is rethrown by the executor like an exception of a
+	 * flow function, which stops the solver.
+	 */
+	public void failExternalWork(final Throwable failure) {
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					throw new RuntimeException("External work failed", failure);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// The executor already stopped after an earlier failure
+		}
+	}
+	
+	/**
+	 * Waits until no external work is running.
+	 * @return True if there was external work to wait for, otherwise false
+	 */
+	private boolean awaitExternalWork() throws InterruptedException {
+		synchronized (externalWorkLock) {
+			if (externalWork == 0)
+				return false;
+			while (externalWork > 0)
+				externalWorkLock.wait();
+			return true;
+		}
+	}
+	
     /**
      * Dispatch the processing of a given edge. It may be executed in a different thread.
      * @param edge the edge to process
@@ -40,13 +40,20 @@ public class InfoflowSolver extends
     IInfoflowSolver {
 
   private IFollowReturnsPastSeedsHandler followReturnsPastSeedsHandler = null;
+  private final AbstractInfoflowProblem problem;
 
   public InfoflowSolver(AbstractInfoflowProblem problem, CountingThreadPoolExecutor executor) {
     super(problem);
+    this.problem = problem;
     this.executor = executor;
     problem.setSolver(this);
   }
 
+  @Override
+  public AbstractInfoflowProblem getTabulationProblem() {
+    return problem;
+  }
+
   @Override
   protected CountingThreadPoolExecutor getExecutor() {
     return executor;
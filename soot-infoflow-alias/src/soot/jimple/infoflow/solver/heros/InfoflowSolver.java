@@ -20,6 +20,7 @@ import heros.solver.PathTrackingIFDSSolver;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import soot.SootMethod;
 import soot.Unit;
@@ -46,13 +47,22 @@ public class InfoflowSolver extends
     implements IInfoflowSolver {
 
   private IFollowReturnsPastSeedsHandler followReturnsPastSeedsHandler = null;
+  private final AbstractInfoflowProblem problem;
+  private final Object externalWorkLock = new Object();
+  private int externalWork = 0;
 
   public InfoflowSolver(AbstractInfoflowProblem problem, CountingThreadPoolExecutor executor) {
     super(problem);
+    this.problem = problem;
     this.executor = executor;
     problem.setSolver(this);
   }
 
+  @Override
+  public AbstractInfoflowProblem getTabulationProblem() {
+    return problem;
+  }
+
   @Override
   protected CountingThreadPoolExecutor getExecutor() {
     return executor;
@@ -218,4 +228,57 @@ public class InfoflowSolver extends
     return zeroValue;
   }
 
+  /**
+   * The heros solver only waits for its executor, so the first piece of external work occupies an
+   * executor thread with a task that waits until all external work has ended.
+   */
+  @Override
+  public void beginExternalWork() {
+    synchronized (externalWorkLock) {
+      if (externalWork++ > 0)
+        return;
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (externalWorkLock) {
+          while (externalWork > 0) {
+            try {
+              externalWorkLock.wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+          }
+        }
+      }
+    });
+  }
+
+  @Override
+  public void endExternalWork() {
+    synchronized (externalWorkLock) {
+      externalWork--;
+      externalWorkLock.notifyAll();
+    }
+  }
+
+  /**
+   * The failure is rethrown in a task of the executor, which records it and stops like after an
+   * exception of a flow function.
+   */
+  @Override
+  public void failExternalWork(final Throwable failure) {
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          throw new RuntimeException("External work failed", failure);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The executor already stopped after an earlier failure
+    }
+  }
+
 }
@@ -0,0 +1,87 @@
+package soot.jimple.infoflow.test;
+
+/**
+ * Target code of the tests that run Boomerang alias queries directly. Every argument of a call to
+ * {@link #query(Object)} is the base of a query at that call.
+ */
+public class AliasQueryTestCode {
+
+  public static class Node {
+    public Node next;
+    public Object value;
+  }
+
+  public static class Holder {
+    public Object writtenInCallee;
+  }
+
+  public void directAlias() {
+    Node a = new Node();
+    Node b = a;
+    b.value = new Object();
+    query(a);
+  }
+
+  public void fieldAlias() {
+    Node a = new Node();
+    Node b = new Node();
+    b.next = a;
+    a.value = new Object();
+    query(b.next);
+  }
+
+  public void calleeAlias() {
+    Node a = new Node();
+    Node b = identity(a);
+    b.value = new Object();
+    query(b);
+  }
+
+  public void writeInCallee() {
+    Holder h = new Holder();
+    write(h);
+    query(h);
+  }
+
+  public void list() {
+    Node head = new Node();
+    Node last = head;
+    for (int i = 0; i < 10; i++) {
+      Node n = new Node();
+      last.next = n;
+      last = n;
+    }
+    query(last);
+    query(head.next);
+  }
+
+  public void sharedCallee() {
+    Node a = new Node();
+    Node b = identity(a);
+    Node c = b;
+    query(b);
+    query(c);
+  }
+
+  public void nestedCallee() {
+    Node a = new Node();
+    Node b = outer(a);
+    b.value = new Object();
+    query(b);
+  }
+
+  private static Node outer(Node n) {
+    return identity(n);
+  }
+
+  private static Node identity(Node n) {
+    return n;
+  }
+
+  private static void write(Holder h) {
+    h.writtenInCallee = new Object();
+  }
+
+  private static void query(Object o) {
+  }
+}
@@ -0,0 +1,109 @@
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.preanalysis.PreparationTransformer;
+import soot.Local;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Transform;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.test.AliasQueryTestCode;
+import soot.options.Options;
+
+/**
+ * Loads {@link AliasQueryTestCode} into Soot, prepared for Boomerang, and collects its alias
+ * queries: one per argument of a call to its {@code query} method.
+ */
+class AliasQueryFixture {
+
+  private static final String TEST_CODE = AliasQueryTestCode.class.getName();
+
+  private final InfoflowCFG icfg;
+  private final SootClass testClass;
+
+  private AliasQueryFixture(InfoflowCFG icfg, SootClass testClass) {
+    this.icfg = icfg;
+    this.testClass = testClass;
+  }
+
+  /**
+   * Loads the test code with Soot, which must have been reset before.
+   */
+  static AliasQueryFixture load(String appPath, String libPath) {
+    Options.v().set_whole_program(true);
+    Options.v().set_output_format(Options.output_format_none);
+    Options.v().setPhaseOption("cg", "trim-clinit:false");
+    Options.v().setPhaseOption("jb", "use-original-names:true");
+    Options.v().set_soot_classpath(appPath + System.getProperty("path.separator") + libPath);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_no_bodies_for_excluded(true);
+    Options.v().set_allow_phantom_refs(true);
+
+    Scene.v().addBasicClass(TEST_CODE, SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    SootClass c = Scene.v().forceResolve(TEST_CODE, SootClass.BODIES);
+    c.setApplicationClass();
+    List<SootMethod> entryPoints = new ArrayList<>();
+    for (SootMethod m : c.getMethods())
+      if (m.isPublic() && !m.isConstructor())
+        entryPoints.add(m);
+    Scene.v().setEntryPoints(entryPoints);
+    PackManager.v().getPack("wjtp")
+        .add(new Transform("wjtp.preparationTransform", new PreparationTransformer()));
+    PackManager.v().getPack("cg").apply();
+    PackManager.v().getPack("wjtp").apply();
+    return new AliasQueryFixture(new InfoflowCFG(), c);
+  }
+
+  InfoflowCFG getICFG() {
+    return icfg;
+  }
+
+  SootMethod getMethod(String name) {
+    return testClass.getMethodByName(name);
+  }
+
+  List<SootMethod> getMethods() {
+    return testClass.getMethods();
+  }
+
+  /**
+   * @return The field of the given nested class of the test code.
+   */
+  SootField getField(String nestedClass, String name) {
+    return Scene.v().getSootClass(TEST_CODE + "$" + nestedClass).getFieldByName(name);
+  }
+
+  /**
+   * @return The queries of all entry points of the test code, in the order of their statements.
+   */
+  List<AliasQuery> getQueries() {
+    List<AliasQuery> res = new ArrayList<>();
+    for (SootMethod m : Scene.v().getEntryPoints())
+      res.addAll(getQueries(m));
+    return res;
+  }
+
+  List<AliasQuery> getQueries(SootMethod m) {
+    List<AliasQuery> res = new ArrayList<>();
+    for (Unit u : m.getActiveBody().getUnits()) {
+      Stmt s = (Stmt) u;
+      if (!s.containsInvokeExpr() || !s.getInvokeExpr().getMethod().getName().equals("query"))
+        continue;
+      Value arg = s.getInvokeExpr().getArg(0);
+      if (arg instanceof Local)
+        res.add(new AliasQuery(new AccessGraph((Local) arg, arg.getType()), s));
+    }
+    return res;
+  }
+}
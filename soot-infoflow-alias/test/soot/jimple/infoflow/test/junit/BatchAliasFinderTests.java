@@ -0,0 +1,47 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import boomerang.AliasFinder;
+import boomerang.cache.AliasResults;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangContextFactory;
+import soot.jimple.infoflow.aliasing.boomerang.BatchAliasFinder;
+
+/**
+ * Tests that batches of alias queries yield the results of single queries.
+ */
+public class BatchAliasFinderTests extends JUnitTests {
+
+  @Test(timeout = 300000)
+  public void batchQueriesMatchSingleQueries() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    List<AliasQuery> queries = fixture.getQueries();
+    assertFalse(queries.isEmpty());
+
+    BoomerangContextFactory sequentialFactory = new BoomerangContextFactory(fixture.getICFG());
+    BatchAliasFinder batch = new BatchAliasFinder(fixture.getICFG());
+    try {
+      // Later rounds run on the result cache and summaries of the earlier ones
+      for (int round = 0; round < 3; round++) {
+        Map<AliasQuery, AliasResults> batchResults = batch.findAliases(queries);
+        assertEquals(queries.size(), batchResults.size());
+        for (AliasQuery q : queries) {
+          AliasFinder finder = sequentialFactory.createAliasFinder();
+          finder.context.startTime = System.currentTimeMillis();
+          AliasResults expected =
+              finder.findAliasAtStmt(q.getAccessGraph(), q.getStmt(), q.getContextRequester());
+          assertEquals(q.toString(), expected, batchResults.get(q));
+        }
+      }
+    } finally {
+      batch.shutdown();
+    }
+  }
+}
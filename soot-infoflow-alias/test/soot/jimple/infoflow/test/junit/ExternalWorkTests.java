@@ -0,0 +1,117 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import heros.solver.CountingThreadPoolExecutor;
+import soot.jimple.infoflow.aliasing.PtsBasedAliasStrategy;
+import soot.jimple.infoflow.problems.InfoflowProblem;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+
+/**
+ * Tests that both solvers wait for external work before they finish and fail once external work
+ * reports a failure, see {@link IInfoflowSolver#beginExternalWork()}.
+ */
+public class ExternalWorkTests extends JUnitTests {
+
+  @Test(timeout = 300000)
+  public void fastSolverWaitsForExternalWork() throws InterruptedException {
+    assertWaitsForExternalWork(fastSolver());
+  }
+
+  @Test(timeout = 300000)
+  public void herosSolverWaitsForExternalWork() throws InterruptedException {
+    assertWaitsForExternalWork(herosSolver());
+  }
+
+  @Test(timeout = 300000)
+  public void fastSolverFailsWithExternalWork() {
+    assertFailsWithExternalWork(fastSolver());
+  }
+
+  @Test(timeout = 300000)
+  public void herosSolverFailsWithExternalWork() {
+    assertFailsWithExternalWork(herosSolver());
+  }
+
+  private static void assertWaitsForExternalWork(final IInfoflowSolver solver)
+      throws InterruptedException {
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    solver.beginExternalWork();
+    Thread solving = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          solve(solver);
+        } catch (Throwable t) {
+          failure.set(t);
+        }
+      }
+    });
+    solving.start();
+    // The problem has no seeds, only the external work keeps the solver running
+    solving.join(1000);
+    assertTrue(solving.isAlive());
+    solver.endExternalWork();
+    solving.join();
+    assertNull(failure.get());
+  }
+
+  private static void assertFailsWithExternalWork(IInfoflowSolver solver) {
+    IllegalStateException failure = new IllegalStateException("Alias query failed");
+    solver.beginExternalWork();
+    solver.failExternalWork(failure);
+    solver.endExternalWork();
+    try {
+      solve(solver);
+      fail("The solver ignored the failure of the external work");
+    } catch (RuntimeException e) {
+      Throwable cause = e;
+      while (cause != null && cause != failure)
+        cause = cause.getCause();
+      assertSame(failure, cause);
+    }
+  }
+
+  private static void solve(IInfoflowSolver solver) {
+    if (solver instanceof soot.jimple.infoflow.solver.fastSolver.InfoflowSolver)
+      ((soot.jimple.infoflow.solver.fastSolver.InfoflowSolver) solver).solve();
+    else
+      ((soot.jimple.infoflow.solver.heros.InfoflowSolver) solver).solve();
+  }
+
+  private IInfoflowSolver fastSolver() {
+    return new soot.jimple.infoflow.solver.fastSolver.InfoflowSolver(problem(), executor());
+  }
+
+  private IInfoflowSolver herosSolver() {
+    return new soot.jimple.infoflow.solver.heros.InfoflowSolver(problem(), executor());
+  }
+
+  /**
+   * @return A forward problem of the alias test code without initial seeds.
+   */
+  private InfoflowProblem problem() {
+    IInfoflowCFG icfg = AliasQueryFixture.load(appPath, libPath).getICFG();
+    return new InfoflowProblem(icfg, new DefaultSourceSinkManager(sources, sinks),
+        new PtsBasedAliasStrategy(icfg));
+  }
+
+  /**
+   * @return An executor like the one of {@link soot.jimple.infoflow.Infoflow}.
+   */
+  private static CountingThreadPoolExecutor executor() {
+    return new CountingThreadPoolExecutor(1, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>());
+  }
+}
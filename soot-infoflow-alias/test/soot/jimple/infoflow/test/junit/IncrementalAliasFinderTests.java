@@ -0,0 +1,50 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import boomerang.cache.AliasResults;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.aliasing.boomerang.IncrementalAliasFinder;
+
+/**
+ * Tests that {@link IncrementalAliasFinder} discards exactly the results that depend on changed
+ * methods.
+ */
+public class IncrementalAliasFinderTests extends JUnitTests {
+
+  @Test(timeout = 300000)
+  public void changedCalleeInvalidatesEveryQueryThroughIt() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    List<AliasQuery> queries = fixture.getQueries(fixture.getMethod("sharedCallee"));
+    assertEquals(2, queries.size());
+    IncrementalAliasFinder finder = new IncrementalAliasFinder(fixture.getICFG());
+    AliasResults first = finder.findAliases(queries.get(0));
+    // Boomerang may answer parts of the second query from what it computed for the first one
+    AliasResults second = finder.findAliases(queries.get(1));
+    assertEquals(0, finder.getReuseCount());
+
+    // Both queries only reach the callee through the alias of the returned value
+    assertEquals(2, finder.methodsChanged(Collections.singleton(fixture.getMethod("identity"))));
+    assertEquals(second, finder.findAliases(queries.get(1)));
+    assertEquals(first, finder.findAliases(queries.get(0)));
+    assertEquals(0, finder.getReuseCount());
+    assertEquals(2, finder.getInvalidationCount());
+  }
+
+  @Test(timeout = 300000)
+  public void unrelatedChangeKeepsResults() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    AliasQuery query = fixture.getQueries(fixture.getMethod("sharedCallee")).get(0);
+    IncrementalAliasFinder finder = new IncrementalAliasFinder(fixture.getICFG());
+    AliasResults res = finder.findAliases(query);
+
+    assertEquals(0, finder.methodsChanged(Collections.singleton(fixture.getMethod("write"))));
+    assertEquals(res, finder.findAliases(query));
+    assertEquals(1, finder.getReuseCount());
+  }
+}
@@ -0,0 +1,134 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.jimple.infoflow.aliasing.boomerang.LibrarySummaries;
+
+/**
+ * Tests that {@link LibrarySummaries} parses the rules of each line, rejects malformed lines and
+ * finds the rules of a method in its supertypes.
+ */
+public class LibrarySummariesTests extends JUnitTests {
+
+  @Test
+  public void parsesRulesOfEachLine() throws IOException {
+    LibrarySummaries summaries = parse("% comment", "",
+        "  <lib.Util: void copy(java.lang.Object)> arg0 -> arg12.[] ; this.[] -> return  ",
+        "<lib.Util: void clear(java.lang.Object)>");
+    assertEquals(2, summaries.size());
+    SootClass util = libraryClass("lib.Util", null);
+    assertEquals("[arg0 -> arg12.[], this.[] -> return]",
+        String.valueOf(summaries.summaryOf(method(util, "copy", 0))));
+    // A method without rules is summarised, it does not move any object
+    assertEquals("[]", String.valueOf(summaries.summaryOf(method(util, "clear", 0))));
+    assertNull(summaries.summaryOf(method(util, "unknown", 0)));
+  }
+
+  @Test
+  public void shippedSummariesAreWellFormed() throws IOException {
+    assertTrue(LibrarySummaries.fromFile(new File(LibrarySummaries.DEFAULT_FILE)).size() > 0);
+  }
+
+  @Test
+  public void malformedLinesAreRejected() throws IOException {
+    assertMalformed("lib.Util: void copy(java.lang.Object)> arg0 -> this");
+    assertMalformed("<lib.Util void copy(java.lang.Object)> arg0 -> this");
+    assertMalformed("<lib.Util: void copy(java.lang.Object) arg0 -> this");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> arg0 this");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> arg0 -> this -> return");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> return -> this");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> arg -> this");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> argx -> this");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> arg0 -> that");
+    assertMalformed("<lib.Util: void copy(java.lang.Object)> arg0 -> this.f");
+  }
+
+  @Test
+  public void closestSupertypeRuleApplies() throws IOException {
+    LibrarySummaries summaries = parse(
+        "<lib.Collection: void add(java.lang.Object)> arg0 -> this.[]",
+        "<lib.Base: void add(java.lang.Object)> arg0 -> this",
+        "<lib.Base: void put(java.lang.Object)> arg0 -> this.[]",
+        "<lib.Base: void <init>(java.lang.Object)> arg0 -> this.[]",
+        "<lib.Base: void of(java.lang.Object)> arg0 -> return");
+    SootClass collection = libraryClass("lib.Collection", null);
+    collection.setModifiers(Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT);
+    SootClass base = libraryClass("lib.Base", null);
+    SootClass list = libraryClass("lib.List", base, collection);
+    SootClass sub = libraryClass("lib.Sub", list);
+
+    // The superclass is closer than the interface of the subclass
+    assertEquals("[arg0 -> this]", String.valueOf(summaries.summaryOf(method(list, "add", 0))));
+    assertEquals("[arg0 -> this.[]]", String.valueOf(summaries.summaryOf(method(sub, "put", 0))));
+    // Constructors and static methods are only matched by their exact signature
+    assertNull(summaries.summaryOf(method(sub, SootMethod.constructorName, 0)));
+    assertNull(summaries.summaryOf(method(sub, "of", Modifier.STATIC)));
+    assertEquals("[arg0 -> this.[]]",
+        String.valueOf(summaries.summaryOf(method(base, SootMethod.constructorName, 0))));
+  }
+
+  @Test
+  public void applicationClassesAreNotSummarised() throws IOException {
+    LibrarySummaries summaries = parse("<lib.Base: void add(java.lang.Object)> arg0 -> this");
+    SootClass base = libraryClass("lib.Base", null);
+    SootClass app = libraryClass("app.Sub", base);
+    app.setApplicationClass();
+    assertNull(summaries.summaryOf(method(app, "add", 0)));
+  }
+
+  private static LibrarySummaries parse(String... lines) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (String line : lines)
+      sb.append(line).append('\n');
+    return LibrarySummaries.parse(new StringReader(sb.toString()));
+  }
+
+  private static void assertMalformed(String line) throws IOException {
+    try {
+      parse("% comment", line);
+      fail(line);
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2: "));
+    }
+  }
+
+  private static SootClass libraryClass(String name, SootClass superclass,
+      SootClass... interfaces) {
+    SootClass c = new SootClass(name, Modifier.PUBLIC);
+    if (superclass != null)
+      c.setSuperclass(superclass);
+    for (SootClass i : interfaces)
+      c.addInterface(i);
+    Scene.v().addClass(c);
+    c.setLibraryClass();
+    return c;
+  }
+
+  /**
+   * @return A new method of the class that takes an object and returns nothing.
+   */
+  private static SootMethod method(SootClass c, String name, int modifiers) {
+    SootMethod m = new SootMethod(name,
+        Collections.<Type>singletonList(RefType.v("java.lang.Object")), VoidType.v(),
+        Modifier.PUBLIC | modifiers);
+    c.addMethod(m);
+    return m;
+  }
+}
@@ -0,0 +1,154 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.collect.DenseNumbering;
+import soot.jimple.infoflow.collect.LongHashSet;
+import soot.jimple.infoflow.collect.LongIntHashMap;
+
+/**
+ * Tests the primitive collections behind the packed path edge stores against the JDK collections.
+ */
+public class PackedCollectionsTests {
+
+  @Test
+  public void longHashSetAddsAndFindsKeys() {
+    LongHashSet set = new LongHashSet();
+    assertTrue(set.isEmpty());
+    assertTrue(set.add(42));
+    assertFalse(set.add(42));
+    assertTrue(set.contains(42));
+    assertFalse(set.contains(43));
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  public void longHashSetStoresTheEmptyMarker() {
+    LongHashSet set = new LongHashSet();
+    assertFalse(set.contains(0));
+    assertTrue(set.add(0));
+    assertFalse(set.add(0));
+    assertTrue(set.contains(0));
+    assertEquals(1, set.size());
+    set.clear();
+    assertFalse(set.contains(0));
+    assertTrue(set.isEmpty());
+  }
+
+  @Test
+  public void longHashSetMatchesHashSet() {
+    Random random = new Random(1);
+    LongHashSet set = new LongHashSet(4);
+    Set<Long> expected = new HashSet<>();
+    for (int i = 0; i < 100000; i++) {
+      // Few distinct keys, so that both new and known keys are added
+      long key = random.nextInt(20000) - 10000L;
+      if (random.nextBoolean())
+        key <<= 32;
+      assertEquals(expected.add(key), set.add(key));
+    }
+    assertEquals(expected.size(), set.size());
+    for (long key = -10000; key < 10000; key++) {
+      assertEquals(expected.contains(key), set.contains(key));
+      assertEquals(expected.contains(key << 32), set.contains(key << 32));
+    }
+  }
+
+  @Test
+  public void longHashSetIsEmptyAfterClear() {
+    LongHashSet set = new LongHashSet();
+    for (long key = 1; key <= 1000; key++)
+      set.add(key);
+    set.clear();
+    assertEquals(0, set.size());
+    for (long key = 1; key <= 1000; key++)
+      assertFalse(set.contains(key));
+    assertTrue(set.add(7));
+  }
+
+  @Test
+  public void longIntHashMapPutsAndGetsValues() {
+    LongIntHashMap map = new LongIntHashMap();
+    assertEquals(-1, map.get(5, -1));
+    map.put(5, 50);
+    assertEquals(50, map.get(5, -1));
+    map.put(5, 51);
+    assertEquals(51, map.get(5, -1));
+    assertEquals(1, map.size());
+    map.put(0, 7);
+    assertEquals(7, map.get(0, -1));
+    assertEquals(2, map.size());
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(-1, map.get(5, -1));
+    assertEquals(-1, map.get(0, -1));
+  }
+
+  @Test
+  public void longIntHashMapMatchesHashMap() {
+    Random random = new Random(2);
+    LongIntHashMap map = new LongIntHashMap();
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      long key = random.nextLong() % 50000;
+      int value = random.nextInt();
+      map.put(key, value);
+      expected.put(key, value);
+    }
+    assertEquals(expected.size(), map.size());
+    for (Map.Entry<Long, Integer> e : expected.entrySet())
+      assertEquals(e.getValue().intValue(), map.get(e.getKey(), e.getValue() + 1));
+  }
+
+  @Test
+  public void denseNumberingNumbersConsecutively() {
+    DenseNumbering<String> numbering = new DenseNumbering<>();
+    assertEquals(-1, numbering.get("a"));
+    assertEquals(0, numbering.getOrAdd("a"));
+    assertEquals(1, numbering.getOrAdd("b"));
+    // Objects are compared by equals
+    assertEquals(0, numbering.getOrAdd(new String("a")));
+    assertEquals(1, numbering.get(new String("b")));
+    assertEquals("b", numbering.getObject(1));
+    assertEquals(2, numbering.size());
+  }
+
+  @Test
+  public void denseNumberingGrows() {
+    DenseNumbering<Integer> numbering = new DenseNumbering<>();
+    for (int i = 0; i < 10000; i++)
+      assertEquals(i, numbering.getOrAdd(i * 31));
+    assertEquals(10000, numbering.size());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, numbering.get(i * 31));
+      assertEquals(Integer.valueOf(i * 31), numbering.getObject(i));
+    }
+  }
+
+  @Test
+  public void denseNumberingRestartsAfterClear() {
+    DenseNumbering<Object> numbering = new DenseNumbering<>();
+    Object a = new Object();
+    Object b = new Object();
+    numbering.getOrAdd(a);
+    numbering.clear();
+    assertEquals(0, numbering.size());
+    assertEquals(-1, numbering.get(a));
+    assertEquals(0, numbering.getOrAdd(b));
+    assertSame(b, numbering.getObject(0));
+    // The cleared slots no longer refer to the old objects
+    assertNull(numbering.getObject(1));
+  }
+}
@@ -0,0 +1,178 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import boomerang.accesspath.AccessGraph;
+import boomerang.ifdssolver.IPathEdge;
+import heros.solver.Pair;
+import soot.Body;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Jimple;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangContextFactory;
+import soot.jimple.infoflow.aliasing.boomerang.BudgetedAliasFinder;
+import soot.jimple.infoflow.aliasing.boomerang.ConcurrentSummaries;
+import soot.jimple.infoflow.aliasing.boomerang.PersistentSummaries;
+
+/**
+ * Tests that {@link PersistentSummaries} read back exactly the summaries an earlier run saved, and
+ * none from a damaged file or for a method whose callees changed.
+ */
+public class PersistentSummariesTests extends JUnitTests {
+
+  private static final List<String> SUMMARY_FILES =
+      Arrays.asList("forward.summaries", "backward.summaries");
+
+  @Test(timeout = 300000)
+  public void savedSummariesAreReadBack() throws IOException {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    File directory = Files.createTempDirectory("summaries").toFile();
+    List<ConcurrentSummaries> saved = summarize(fixture, directory);
+    int loadedMethods = 0;
+    for (int i = 0; i < SUMMARY_FILES.size(); i++) {
+      PersistentSummaries loaded = load(fixture, directory, SUMMARY_FILES.get(i));
+      for (SootMethod m : saved.get(i).getMethods()) {
+        Set<IPathEdge<Unit, AccessGraph>> edges = loadedSummaries(loaded, saved.get(i), m);
+        // The summaries of a method are only persisted if all of them can be encoded
+        if (edges.isEmpty())
+          continue;
+        assertEquals(m.toString(), new HashSet<>(saved.get(i).getSummaries(m)), edges);
+        loadedMethods++;
+      }
+    }
+    assertTrue(loadedMethods > 0);
+  }
+
+  @Test(timeout = 300000)
+  public void truncatedFileIsIgnored() throws IOException {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    File directory = Files.createTempDirectory("summaries").toFile();
+    List<ConcurrentSummaries> saved = summarize(fixture, directory);
+    for (int i = 0; i < SUMMARY_FILES.size(); i++) {
+      try (RandomAccessFile raf =
+          new RandomAccessFile(new File(directory, SUMMARY_FILES.get(i)), "rw")) {
+        raf.setLength(raf.length() / 2);
+      }
+      assertNothingLoaded(fixture, directory, SUMMARY_FILES.get(i), saved.get(i));
+    }
+  }
+
+  @Test(timeout = 300000)
+  public void recordOutOfBoundsIsIgnored() throws IOException {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    File directory = Files.createTempDirectory("summaries").toFile();
+    List<ConcurrentSummaries> saved = summarize(fixture, directory);
+    for (int i = 0; i < SUMMARY_FILES.size(); i++) {
+      try (RandomAccessFile raf =
+          new RandomAccessFile(new File(directory, SUMMARY_FILES.get(i)), "rw")) {
+        raf.seek(8);
+        if (raf.readInt() == 0)
+          continue;
+        // The offset of the first index entry, which follows the header and its key
+        raf.seek(16 + raf.readInt());
+        raf.writeLong(Long.MAX_VALUE / 2);
+      }
+      assertNothingLoaded(fixture, directory, SUMMARY_FILES.get(i), saved.get(i));
+    }
+  }
+
+  @Test(timeout = 300000)
+  public void corruptedRecordsAreIgnored() throws IOException {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    File directory = Files.createTempDirectory("summaries").toFile();
+    List<ConcurrentSummaries> saved = summarize(fixture, directory);
+    for (int i = 0; i < SUMMARY_FILES.size(); i++) {
+      try (RandomAccessFile raf =
+          new RandomAccessFile(new File(directory, SUMMARY_FILES.get(i)), "rw")) {
+        raf.seek(8);
+        int count = raf.readInt();
+        for (int entry = 0; entry < count; entry++)
+          raf.seek(raf.getFilePointer() + 4 + raf.readInt() + 12);
+        // Every record now starts with a negative edge count
+        while (raf.getFilePointer() < raf.length())
+          raf.writeByte(0xff);
+      }
+      assertNothingLoaded(fixture, directory, SUMMARY_FILES.get(i), saved.get(i));
+    }
+  }
+
+  @Test(timeout = 300000)
+  public void changedCalleeInvalidatesCallerSummaries() throws IOException {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    File directory = Files.createTempDirectory("summaries").toFile();
+    List<ConcurrentSummaries> saved = summarize(fixture, directory);
+    SootMethod outer = fixture.getMethod("outer");
+    boolean loadedBefore = false;
+    for (int i = 0; i < SUMMARY_FILES.size(); i++)
+      loadedBefore |= !loadedSummaries(load(fixture, directory, SUMMARY_FILES.get(i)),
+          saved.get(i), outer).isEmpty();
+    assertTrue(loadedBefore);
+
+    // Only the body of the callee changes, the caller is the same as in the saved run
+    Body body = fixture.getMethod("identity").getActiveBody();
+    body.getUnits().insertBefore(Jimple.v().newNopStmt(), body.getUnits().getLast());
+    for (int i = 0; i < SUMMARY_FILES.size(); i++)
+      assertTrue(loadedSummaries(load(fixture, directory, SUMMARY_FILES.get(i)), saved.get(i),
+          outer).isEmpty());
+  }
+
+  /**
+   * Runs the queries of the test code with summaries persisted in the directory and saves them.
+   *
+   * @return The forward and the backward summaries of the run.
+   */
+  private List<ConcurrentSummaries> summarize(AliasQueryFixture fixture, File directory)
+      throws IOException {
+    BoomerangContextFactory factory = new BoomerangContextFactory(fixture.getICFG());
+    factory.setPersistentSummaries(directory);
+    for (AliasQuery q : fixture.getQueries())
+      new BudgetedAliasFinder(factory.createAliasFinder()).findAliases(q);
+    factory.savePersistentSummaries();
+    List<ConcurrentSummaries> res = Arrays.asList(
+        ((PersistentSummaries) factory.getForwardSummaries()).getSummaries(),
+        ((PersistentSummaries) factory.getBackwardSummaries()).getSummaries());
+    assertFalse(res.get(0).getMethods().isEmpty() && res.get(1).getMethods().isEmpty());
+    return res;
+  }
+
+  private PersistentSummaries load(AliasQueryFixture fixture, File directory, String name)
+      throws IOException {
+    return new PersistentSummaries(new ConcurrentSummaries(fixture.getICFG()), fixture.getICFG(),
+        new File(directory, name));
+  }
+
+  /**
+   * @return The summaries of the method the loaded store read from its file.
+   */
+  private Set<IPathEdge<Unit, AccessGraph>> loadedSummaries(PersistentSummaries loaded,
+      ConcurrentSummaries saved, SootMethod m) {
+    // Asking for any start node reads all persisted summaries of the method
+    for (IPathEdge<Unit, AccessGraph> edge : saved.getSummaries(m)) {
+      loaded.endSummary(m, new Pair<>(edge.getStart(), edge.factAtSource()));
+      break;
+    }
+    return new HashSet<>(loaded.getSummaries().getSummaries(m));
+  }
+
+  private void assertNothingLoaded(AliasQueryFixture fixture, File directory, String name,
+      ConcurrentSummaries saved) throws IOException {
+    PersistentSummaries loaded = load(fixture, directory, name);
+    for (SootMethod m : saved.getMethods())
+      assertTrue(m.toString(), loadedSummaries(loaded, saved, m).isEmpty());
+    assertEquals(0, loaded.getLoadedRecordCount());
+  }
+}
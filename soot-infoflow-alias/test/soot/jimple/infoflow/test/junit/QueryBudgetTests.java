@@ -0,0 +1,49 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import boomerang.AliasFinder;
+import boomerang.cache.AliasResults;
+import soot.jimple.infoflow.aliasing.boomerang.AliasQuery;
+import soot.jimple.infoflow.aliasing.boomerang.BoomerangContextFactory;
+import soot.jimple.infoflow.aliasing.boomerang.BudgetedAliasFinder;
+import soot.jimple.infoflow.aliasing.boomerang.ManagedBoomerangContext;
+import soot.jimple.infoflow.aliasing.boomerang.PartialAliasResults;
+import soot.jimple.infoflow.aliasing.boomerang.QueryBudget;
+
+/**
+ * Tests that a {@link QueryBudget} cuts off queries by their work.
+ */
+public class QueryBudgetTests extends JUnitTests {
+
+  @Test(timeout = 300000)
+  public void budgetStopsQuery() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    // Only a budget is set, so the factory would otherwise create non-counting path edge stores
+    BoomerangContextFactory factory = new BoomerangContextFactory(fixture.getICFG());
+    factory.setQueryBudget(new QueryBudget(1, 0, 0));
+    AliasFinder finder = factory.createAliasFinder();
+    ManagedBoomerangContext context = (ManagedBoomerangContext) finder.context;
+
+    AliasQuery query = fixture.getQueries(fixture.getMethod("list")).get(0);
+    AliasResults res = new BudgetedAliasFinder(finder).findAliases(query);
+    assertTrue(res instanceof PartialAliasResults);
+    assertTrue(context.getPropagationCount() > 1);
+  }
+
+  @Test(timeout = 300000)
+  public void unlimitedBudgetCompletesQuery() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    BoomerangContextFactory factory = new BoomerangContextFactory(fixture.getICFG());
+    factory.setQueryBudget(QueryBudget.UNLIMITED);
+    AliasFinder finder = factory.createAliasFinder();
+
+    AliasQuery query = fixture.getQueries(fixture.getMethod("list")).get(0);
+    AliasResults res = new BudgetedAliasFinder(finder).findAliases(query);
+    assertFalse(res instanceof PartialAliasResults);
+    assertFalse(res.isEmpty());
+  }
+}
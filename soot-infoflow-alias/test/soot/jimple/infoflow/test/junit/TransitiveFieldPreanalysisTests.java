@@ -0,0 +1,77 @@
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import boomerang.preanalysis.FieldPreanalysis;
+import soot.RefType;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.jimple.infoflow.aliasing.boomerang.TransitiveFieldPreanalysis;
+
+/**
+ * Tests the transitive field facts of {@link TransitiveFieldPreanalysis}.
+ */
+public class TransitiveFieldPreanalysisTests extends JUnitTests {
+
+  @Test(timeout = 300000)
+  public void fieldFirstReachedThroughCallee() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    SootField field = fixture.getField("Holder", "writtenInCallee");
+    // The field is only written in a callee, and no fact is computed before these lookups
+    TransitiveFieldPreanalysis preanalysis = new TransitiveFieldPreanalysis();
+    assertTrue(preanalysis.writesToField(fixture.getMethod("writeInCallee"), field));
+    assertTrue(preanalysis.accessesField(fixture.getMethod("writeInCallee"), field));
+    assertFalse(preanalysis.readsFromField(fixture.getMethod("writeInCallee"), field));
+
+    preanalysis = new TransitiveFieldPreanalysis();
+    assertTrue(preanalysis.accessesField(fixture.getMethod("writeInCallee"), field));
+
+    preanalysis = new TransitiveFieldPreanalysis();
+    assertTrue(preanalysis.writesToField(fixture.getMethod("write"), field));
+  }
+
+  @Test(timeout = 300000)
+  public void fieldNotReachedFromMethod() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    SootField field = fixture.getField("Holder", "writtenInCallee");
+    TransitiveFieldPreanalysis preanalysis = new TransitiveFieldPreanalysis();
+    assertFalse(preanalysis.accessesField(fixture.getMethod("directAlias"), field));
+    // Computing the facts of the writer does not leak into unrelated methods
+    assertTrue(preanalysis.writesToField(fixture.getMethod("writeInCallee"), field));
+    assertFalse(preanalysis.writesToField(fixture.getMethod("calleeAlias"), field));
+  }
+
+  @Test(timeout = 300000)
+  public void matchesBoomerangPreanalysis() {
+    AliasQueryFixture fixture = AliasQueryFixture.load(appPath, libPath);
+    FieldPreanalysis expected = new FieldPreanalysis(fixture.getICFG());
+    TransitiveFieldPreanalysis lazy = new TransitiveFieldPreanalysis();
+    TransitiveFieldPreanalysis eager = new TransitiveFieldPreanalysis();
+    eager.computeAll(4);
+    List<SootField> fields = Arrays.asList(fixture.getField("Node", "next"),
+        fixture.getField("Node", "value"), fixture.getField("Holder", "writtenInCallee"));
+    List<Type> types = Arrays.<Type>asList(fields.get(0).getDeclaringClass().getType(),
+        fields.get(2).getDeclaringClass().getType(), RefType.v("java.lang.Object"));
+    for (TransitiveFieldPreanalysis actual : Arrays.asList(lazy, eager)) {
+      for (SootMethod m : fixture.getMethods()) {
+        for (SootField f : fields) {
+          String message = m + " and " + f;
+          assertEquals(message, expected.writesToField(m, f), actual.writesToField(m, f));
+          assertEquals(message, expected.readsFromField(m, f), actual.readsFromField(m, f));
+          assertEquals(message, expected.accessesField(m, f), actual.accessesField(m, f));
+        }
+        for (Type t : types)
+          assertEquals(m + " and " + t, expected.containsAllocSiteOfType(m, t),
+              actual.containsAllocSiteOfType(m, t));
+      }
+    }
+  }
+}
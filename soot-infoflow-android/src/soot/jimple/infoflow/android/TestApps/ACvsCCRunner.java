@@ -13,7 +13,7 @@ public class ACvsCCRunner {
       Test.main(args);
     } catch (IOException | InterruptedException e) {
       System.out.println("Dart crashed on" + args[0]);
-      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter);
+      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter.get());
       e.printStackTrace();
     };
   }
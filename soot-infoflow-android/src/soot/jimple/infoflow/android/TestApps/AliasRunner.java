@@ -13,7 +13,7 @@ public class AliasRunner {
       Test.main(args);
     } catch (IOException | InterruptedException e) {
       System.out.println("Boomerang crashed on" + args[0]);
-      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter);
+      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter.get());
       e.printStackTrace();
     };
 
@@ -22,7 +22,7 @@ public class AliasRunner {
       Test.main(args);
     } catch (IOException | InterruptedException e) {
       System.out.println("DA crashed on" + args[0]);
-      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter);
+      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter.get());
       e.printStackTrace();
     };
     try {
@@ -30,7 +30,7 @@ public class AliasRunner {
       Test.main(args);
     } catch (IOException | InterruptedException e) {
       System.out.println("SB crashed on" + args[0]);
-      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter);
+      System.out.println("Queries were executed" + Infoflow.aliasQueryCounter.get());
       e.printStackTrace();
     };
     try {